@@ -0,0 +1,60 @@
+package asg1;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: one gradient descent step and one error evaluation on synthetic points y = 2x + 1 + noise
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GradientDescentBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private GradientDescent gd;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = random.nextDouble() * 10;
+            y[i] = 2 * x[i] + 1 + random.nextGaussian();
+        }
+        // a small learning rate, so theta stays finite however many steps are measured
+        gd = new GradientDescent(x, y, 0.0, 1.0, 1e-4);
+    }
+
+    @Benchmark
+    public double updateTheta() {
+        gd.calError(); // updateTheta uses the hypotheses of the last error evaluation
+        gd.updateTheta();
+        return gd.getTheta1();
+    }
+
+    @Benchmark
+    public double calError() {
+        return gd.calError();
+    }
+}
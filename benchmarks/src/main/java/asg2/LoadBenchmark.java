@@ -0,0 +1,77 @@
+package asg2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: loading a csv file: the string based DataProcessUtil.processData, the bit packed
+ * processBinaryData, the multi-threaded ParallelDataLoader, and reading the binary snapshot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    @Param({"20", "100"})
+    public int attrs;
+
+    private String path;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        path = SyntheticData.writeCsv(rows, attrs, 42);
+        new ParallelDataLoader().load(path); // writes the snapshot read by snapshotLoad
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SyntheticData.delete(path);
+    }
+
+    @Benchmark
+    public DataProcessUtil processData() {
+        DataProcessUtil util = new DataProcessUtil(path);
+        util.processData();
+        return util;
+    }
+
+    @Benchmark
+    public BinaryDataSet processBinaryData() {
+        DataProcessUtil util = new DataProcessUtil(path);
+        util.processBinaryData();
+        return util.getBinaryDataSet();
+    }
+
+    @Benchmark
+    public BinaryDataSet parallelLoad() throws IOException {
+        ParallelDataLoader loader = new ParallelDataLoader();
+        loader.setSnapshotEnabled(false);
+        return loader.load(path);
+    }
+
+    @Benchmark
+    public BinaryDataSet snapshotLoad() throws IOException {
+        return new ParallelDataLoader().load(path);
+    }
+}
@@ -0,0 +1,80 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: pruning a fully grown tree: one random pruning trial of DecisionTreeID3.pruneTree,
+ * a scored random trial as PruneSearch runs it, and reduced error pruning
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PruneBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    @Param({"20", "100"})
+    public int attrs;
+
+    private String[] paths;
+    private DecisionTreeID3 dtID3;
+    private TreePruner pruner; // node lookup of the tree of compiledTree
+    private CompiledTree compiledTree; // compiled for the validation data set
+    private Random random = new Random(7);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        paths = new String[]{SyntheticData.writeCsv(rows, attrs, 1), SyntheticData.writeCsv(rows / 4, attrs, 2),
+                SyntheticData.writeCsv(rows / 4, attrs, 3)};
+        dtID3 = new DecisionTreeID3(paths[0], paths[1], paths[2], 0.1);
+        dtID3.constructTree(dtID3.getTrainDataSet());
+        TreeNode root = new TreeBuilder(dtID3.getTrainDataSet()).build();
+        pruner = new TreePruner(root);
+        compiledTree = CompiledTree.compile(root, dtID3.getValidationDataSet());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (String path : paths)
+            SyntheticData.delete(path);
+    }
+
+    @Benchmark
+    public TreeNode pruneTree() {
+        return dtID3.pruneTree(dtID3.getPruneFactor());
+    }
+
+    @Benchmark
+    public int scoredRandomTrial() {
+        int count = (int) (dtID3.getPruneFactor() * pruner.getNodeCount());
+        long[] pruned = pruner.randomPrune(count, random, pruner.newPrunedBits());
+        return compiledTree.countCorrect(dtID3.getValidationDataSet(), pruned);
+    }
+
+    @Benchmark
+    public long[] reducedErrorPrune() {
+        return pruner.reducedErrorPrune(compiledTree, dtID3.getValidationDataSet());
+    }
+}
@@ -0,0 +1,78 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: scoring a data set with a trained tree: DecisionTreeID3.calAccuracy on the string instances
+ * and on the bit packed data set (which compiles the tree every call), and an already compiled tree
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoreBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    @Param({"20", "100"})
+    public int attrs;
+
+    private String[] paths;
+    private DecisionTreeID3 dtID3;
+    private TreeNode root;
+    private DataProcessUtil testUtil; // string instances of the test data set
+    private CompiledTree compiledTree; // compiled for the test data set
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        paths = new String[]{SyntheticData.writeCsv(rows, attrs, 1), SyntheticData.writeCsv(rows, attrs, 2),
+                SyntheticData.writeCsv(rows, attrs, 3)};
+        dtID3 = new DecisionTreeID3(paths[0], paths[1], paths[2], 0.1);
+        root = new TreeBuilder(dtID3.getTrainDataSet()).build();
+        testUtil = new DataProcessUtil(paths[2]);
+        testUtil.processData();
+        compiledTree = CompiledTree.compile(root, dtID3.getTestDataSet());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (String path : paths)
+            SyntheticData.delete(path);
+    }
+
+    @Benchmark
+    public double calAccuracyInstances() {
+        return dtID3.calAccuracy(testUtil.getInstanceList(), testUtil.getAttrLabelMap(), root,
+                testUtil.getInstanceList().size());
+    }
+
+    @Benchmark
+    public double calAccuracy() {
+        return dtID3.calAccuracy(dtID3.getTestDataSet(), root);
+    }
+
+    @Benchmark
+    public int countCorrectCompiled() {
+        return compiledTree.countCorrect(dtID3.getTestDataSet());
+    }
+}
@@ -0,0 +1,72 @@
+package asg2;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: synthetic binary csv files for the benchmarks. Attribute values are uniform 0/1, the class
+ * label is (X0 and X1) or (X2 xor X3) with 10% of the labels flipped, so the trees have real structure
+ * and noise to prune. The same seed always writes the same file
+ */
+final class SyntheticData {
+    private SyntheticData() {
+    }
+
+    /**
+     * write a synthetic data set to a temporary csv file, the file and its snapshot are deleted on exit
+     * @param rows number of instances
+     * @param attrs number of attributes, at least 4
+     * @param seed random seed
+     * @return csv file path
+     * @throws IOException if the file can not be written
+     */
+    static String writeCsv(int rows, int attrs, long seed) throws IOException {
+        if (attrs < 4)
+            throw new IllegalArgumentException("the class label depends on 4 attributes");
+
+        File file = File.createTempFile("synthetic-" + rows + "x" + attrs + "-", ".csv");
+        file.deleteOnExit();
+        new File(file.getPath() + ".snapshot").deleteOnExit();
+
+        Random random = new Random(seed);
+        int[] values = new int[attrs];
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+                Charset.forName("UTF-8")), 1 << 16)) {
+            StringBuilder line = new StringBuilder();
+            for (int attr = 0; attr < attrs; attr++)
+                line.append('X').append(attr).append(',');
+            writer.write(line.append("Class\n").toString());
+
+            for (int row = 0; row < rows; row++) {
+                line.setLength(0);
+                for (int attr = 0; attr < attrs; attr++) {
+                    values[attr] = random.nextInt(2);
+                    line.append(values[attr]).append(',');
+                }
+                int label = (values[0] & values[1]) | (values[2] ^ values[3]);
+                if (random.nextDouble() < 0.1)
+                    label ^= 1;
+                writer.write(line.append(label).append('\n').toString());
+            }
+        }
+
+        return file.getPath();
+    }
+
+    /**
+     * delete a csv file written by writeCsv and its snapshot
+     * @param path csv file path
+     */
+    static void delete(String path) {
+        new File(path).delete();
+        new File(path + ".snapshot").delete();
+    }
+}
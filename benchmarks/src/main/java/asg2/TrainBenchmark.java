@@ -0,0 +1,72 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: DecisionTreeID3.constructTree with the depth first builder on 1 and more threads, and
+ * with the level-wise builder. The threads parameter gives the scaling curve of the parallel builder
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrainBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    @Param({"20", "100"})
+    public int attrs;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private String[] paths;
+    private DecisionTreeID3 dtID3;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        paths = new String[]{SyntheticData.writeCsv(rows, attrs, 1), SyntheticData.writeCsv(rows / 4, attrs, 2),
+                SyntheticData.writeCsv(rows / 4, attrs, 3)};
+        dtID3 = new DecisionTreeID3(paths[0], paths[1], paths[2], 0.1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (String path : paths)
+            SyntheticData.delete(path);
+    }
+
+    @Benchmark
+    public DecisionTreeID3 constructTree() {
+        dtID3.setLevelWise(false);
+        dtID3.setParallelism(threads);
+        dtID3.constructTree(dtID3.getTrainDataSet());
+        return dtID3;
+    }
+
+    @Benchmark
+    public TreeNode constructTreeLevelWise() {
+        // the level-wise builder is single threaded, the threads parameter does not apply
+        return new LevelWiseTreeBuilder(dtID3.getTrainDataSet()).build();
+    }
+}
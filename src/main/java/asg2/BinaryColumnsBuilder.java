@@ -0,0 +1,117 @@
+package asg2;
+
+import java.util.Arrays;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: growable bitset columns used while reading a file into a BinaryDataSet. Class labels are
+ * stored twice: as the bit "label is not 0" and as a dictionary code of the label
+ */
+class BinaryColumnsBuilder {
+    private String[] attrNames;
+    private long[][] columns;
+    private long[] labels;
+    private short[] classCodes;
+    private ClassDictionary classes = new ClassDictionary();
+    private int size; // number of instances appended so far
+
+    /**
+     * constructor
+     * @param attrNames attribute names
+     * @param capacity expected number of instances, the columns grow if it is exceeded
+     */
+    BinaryColumnsBuilder(String[] attrNames, int capacity) {
+        this.attrNames = attrNames;
+        int words = Math.max(1, BinaryDataSet.wordCount(capacity));
+        columns = new long[attrNames.length][words];
+        labels = new long[words];
+        classCodes = new short[words * 64];
+    }
+
+    /**
+     * get the number of attributes
+     * @return number of attributes
+     */
+    int getAttrCount() {
+        return attrNames.length;
+    }
+
+    /**
+     * start a new instance, all of its values are 0 until they are set
+     * @return position of the new instance
+     */
+    int newRow() {
+        if ((size >>> 6) == labels.length)
+            grow();
+
+        return size++;
+    }
+
+    /**
+     * set attribute value of an instance to 1
+     * @param attr column position
+     * @param row instance position
+     */
+    void setValue(int attr, int row) {
+        columns[attr][row >>> 6] |= 1L << row;
+    }
+
+    /**
+     * set class label of an instance to 1
+     * @param row instance position
+     */
+    void setLabel(int row) {
+        labels[row >>> 6] |= 1L << row;
+    }
+
+    /**
+     * set the class label code of an instance
+     * @param row instance position
+     * @param label buffer holding the label bytes
+     * @param length number of label bytes
+     */
+    void setClass(int row, byte[] label, int length) {
+        classCodes[row] = (short) classes.encode(label, length);
+    }
+
+    /**
+     * set the class label code of an instance
+     * @param row instance position
+     * @param label class label
+     */
+    void setClass(int row, String label) {
+        classCodes[row] = (short) classes.encode(label);
+    }
+
+    /**
+     * double the capacity of all columns
+     */
+    private void grow() {
+        int words = labels.length * 2;
+        for (int i = 0; i < columns.length; i++)
+            columns[i] = Arrays.copyOf(columns[i], words);
+        labels = Arrays.copyOf(labels, words);
+        classCodes = Arrays.copyOf(classCodes, words * 64);
+    }
+
+    /**
+     * create the data set, the columns are trimmed to the exact size
+     * @return data set
+     */
+    BinaryDataSet build() {
+        int words = BinaryDataSet.wordCount(size);
+        if (words != labels.length) {
+            for (int i = 0; i < columns.length; i++)
+                columns[i] = Arrays.copyOf(columns[i], words);
+            labels = Arrays.copyOf(labels, words);
+        }
+
+        BinaryDataSet dataSet = new BinaryDataSet(attrNames, columns, labels, size,
+                Arrays.copyOf(classCodes, size), classes.getNames());
+        columns = null;
+        labels = null;
+        classCodes = null;
+        return dataSet;
+    }
+}
@@ -0,0 +1,380 @@
+package asg2;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: column oriented data set for binary attributes, every attribute column and the
+ * class label column are packed into long[] bitsets (bit i of word w stores row w * 64 + i).
+ * Class labels are also dictionary encoded into a short[] of class codes. With at most two distinct class
+ * labels the data set is binary: label "0" is class 0 and any other label class 1, as before. With more
+ * labels it is multi-class, the codes follow the dictionary and every class gets its own packed column.
+ * A validation or test file may miss some classes of the training file, so it takes the class dictionary
+ * and the class mode of the training data set with withClassesOf before a tree scores it
+ */
+public class BinaryDataSet {
+    private String[] attrNames;
+    private long[][] columns; // columns[attr][word], bit set means attribute value "1"
+    private long[] labels; // bit set means class label "1"
+    private int size;
+    private Map<String, Integer> attrIndexMap; // attribute name --> column position
+    private short[] rawCodes; // dictionary code of the class label of every instance
+    private String[] rawNames; // class labels by dictionary code
+    private boolean multiClass; // class codes follow the dictionary instead of label "0" / other
+    private String[] classNames; // class labels by class code, {"0", "1"} for a binary data set
+    private long[][] classColumns; // classColumns[code][word], bit set means the instance has the class
+    private Map<String, Integer> classIndexMap; // class label --> class code
+
+    /**
+     * constructor, the arrays are owned by the data set afterwards
+     * @param attrNames attribute names in file order
+     * @param columns packed attribute columns
+     * @param labels packed class label column
+     * @param size number of instances
+     */
+    BinaryDataSet(String[] attrNames, long[][] columns, long[] labels, int size) {
+        this(attrNames, columns, labels, size, binaryCodes(labels, size), new String[]{"0", "1"});
+    }
+
+    /**
+     * constructor, the arrays are owned by the data set afterwards
+     * @param attrNames attribute names in file order
+     * @param columns packed attribute columns
+     * @param labels packed class label column, bit set if the class label is not "0"
+     * @param size number of instances
+     * @param rawCodes dictionary code of the class label of every instance
+     * @param rawNames class labels by dictionary code
+     */
+    BinaryDataSet(String[] attrNames, long[][] columns, long[] labels, int size, short[] rawCodes,
+                  String[] rawNames) {
+        this(attrNames, columns, labels, size, rawCodes, rawNames, rawNames.length > 2);
+    }
+
+    /**
+     * constructor with a given class mode, the arrays are owned by the data set afterwards
+     * @param attrNames attribute names in file order
+     * @param columns packed attribute columns
+     * @param labels packed class label column, bit set if the class label is not "0"
+     * @param size number of instances
+     * @param rawCodes dictionary code of the class label of every instance
+     * @param rawNames class labels by dictionary code
+     * @param multiClass true if the class codes are the dictionary codes, false for label "0" / other
+     */
+    private BinaryDataSet(String[] attrNames, long[][] columns, long[] labels, int size, short[] rawCodes,
+                          String[] rawNames, boolean multiClass) {
+        this.attrNames = attrNames;
+        this.columns = columns;
+        this.labels = labels;
+        this.size = size;
+        this.rawCodes = rawCodes;
+        this.rawNames = rawNames;
+        this.multiClass = multiClass;
+
+        attrIndexMap = new HashMap<>();
+        for (int i = 0; i < attrNames.length; i++)
+            attrIndexMap.put(attrNames[i], i);
+
+        int words = wordCount(size);
+        if (multiClass) {
+            classNames = rawNames;
+            classColumns = new long[rawNames.length][words];
+            for (int row = 0; row < size; row++)
+                classColumns[rawCodes[row]][row >>> 6] |= 1L << row;
+        } else {
+            classNames = new String[]{"0", "1"};
+            long[] zeros = new long[words];
+            for (int w = 0; w < words; w++)
+                zeros[w] = ~labels[w];
+            if ((size & 63) != 0)
+                zeros[words - 1] &= (1L << size) - 1; // drop bits beyond the last instance
+            classColumns = new long[][]{zeros, labels};
+        }
+
+        classIndexMap = new HashMap<>();
+        for (int i = 0; i < classNames.length; i++)
+            classIndexMap.put(classNames[i], i);
+    }
+
+    /**
+     * create the class codes of a binary class label column
+     * @param labels packed class label column
+     * @param size number of instances
+     * @return class codes, the code is the class label
+     */
+    private static short[] binaryCodes(long[] labels, int size) {
+        short[] codes = new short[size];
+        for (int row = 0; row < size; row++)
+            codes[row] = (short) ((labels[row >>> 6] >>> row) & 1);
+
+        return codes;
+    }
+
+    /**
+     * calculate how many long words are needed to store a column
+     * @param size number of instances
+     * @return number of words
+     */
+    static int wordCount(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    /**
+     * pack the string based attribute map produced by DataProcessUtil.processData()
+     * @param attrMap attributes map: key is attribute name , value is attribute values
+     * @param labels class labels
+     * @return data set, attributes are ordered as the map iterates them
+     */
+    public static BinaryDataSet fromAttrMap(Map<String, List<String>> attrMap, List<String> labels) {
+        String[] attrNames = attrMap.keySet().toArray(new String[attrMap.size()]);
+        BinaryColumnsBuilder builder = new BinaryColumnsBuilder(attrNames, labels.size());
+        for (int row = 0; row < labels.size(); row++) {
+            builder.newRow();
+            if (!labels.get(row).equals("0"))
+                builder.setLabel(row);
+            builder.setClass(row, labels.get(row));
+        }
+        for (int i = 0; i < attrNames.length; i++) {
+            List<String> values = attrMap.get(attrNames[i]);
+            for (int row = 0; row < values.size(); row++) {
+                if (!values.get(row).equals("0"))
+                    builder.setValue(i, row);
+            }
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * concatenate data sets with the same attributes, instances keep their order
+     * @param parts data sets
+     * @return data set containing the instances of all parts
+     */
+    static BinaryDataSet concat(List<BinaryDataSet> parts) {
+        String[] attrNames = parts.get(0).attrNames;
+        long total = 0;
+        for (BinaryDataSet part : parts)
+            total += part.size;
+        if (total > Integer.MAX_VALUE - 64)
+            throw new IllegalArgumentException("too many instances: " + total);
+        if (parts.size() == 1)
+            return parts.get(0);
+
+        int size = (int) total;
+        long[][] columns = new long[attrNames.length][wordCount(size)];
+        long[] labels = new long[wordCount(size)];
+        short[] rawCodes = new short[size];
+        ClassDictionary classes = new ClassDictionary(); // every part has its own dictionary
+        int offset = 0;
+        for (BinaryDataSet part : parts) {
+            for (int i = 0; i < attrNames.length; i++)
+                appendBits(columns[i], offset, part.columns[i], part.size);
+            appendBits(labels, offset, part.labels, part.size);
+            short[] codeMap = new short[part.rawNames.length];
+            for (int code = 0; code < codeMap.length; code++)
+                codeMap[code] = (short) classes.encode(part.rawNames[code]);
+            for (int row = 0; row < part.size; row++)
+                rawCodes[offset + row] = codeMap[part.rawCodes[row]];
+            offset += part.size;
+        }
+
+        return new BinaryDataSet(attrNames, columns, labels, size, rawCodes, classes.getNames());
+    }
+
+    /**
+     * re-encode the class labels with the class dictionary and the class mode of a training data set, so a
+     * file which misses some training classes still gets the class codes a tree built on the training data
+     * predicts. A class label the training data set does not have gets a code after the training codes.
+     * The attribute and label columns are shared with this data set
+     * @param training training data set
+     * @return data set with the class codes of the training data set
+     */
+    public BinaryDataSet withClassesOf(BinaryDataSet training) {
+        return withClasses(training.rawNames, training.multiClass);
+    }
+
+    /**
+     * re-encode the class labels with given class labels and class mode, e.g. the classes of a saved model.
+     * A class label which is not given gets a code after the given codes
+     * @param classNames class labels by class code
+     * @param multiClass true if the class codes are the codes of classNames, false for label "0" / other
+     * @return data set with the class codes of classNames
+     */
+    public BinaryDataSet withClasses(String[] classNames, boolean multiClass) {
+        ClassDictionary classes = new ClassDictionary();
+        for (String name : classNames)
+            classes.encode(name);
+        short[] codeMap = new short[rawNames.length];
+        for (int code = 0; code < codeMap.length; code++)
+            codeMap[code] = (short) classes.encode(rawNames[code]);
+        short[] codes = new short[size];
+        for (int row = 0; row < size; row++)
+            codes[row] = codeMap[rawCodes[row]];
+
+        return new BinaryDataSet(attrNames, columns, labels, size, codes, classes.getNames(), multiClass);
+    }
+
+    /**
+     * copy bits into a bitset starting from a bit offset, the target bits have to be 0
+     * @param target target bitset
+     * @param offset bit offset in the target
+     * @param source source bitset
+     * @param bits number of bits to copy
+     */
+    private static void appendBits(long[] target, int offset, long[] source, int bits) {
+        int words = wordCount(bits);
+        int shift = offset & 63;
+        int base = offset >>> 6;
+        for (int w = 0; w < words; w++) {
+            long word = source[w];
+            if (w == words - 1 && (bits & 63) != 0)
+                word &= (1L << bits) - 1; // drop bits beyond the last instance
+            target[base + w] |= word << shift;
+            if (shift != 0 && base + w + 1 < target.length)
+                target[base + w + 1] |= word >>> (64 - shift);
+        }
+    }
+
+    /**
+     * get the number of instances
+     * @return number of instances
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * get the number of attributes, the class label is not included
+     * @return number of attributes
+     */
+    public int getAttrCount() {
+        return attrNames.length;
+    }
+
+    /**
+     * get attribute name according to its column position
+     * @param attr column position
+     * @return attribute name
+     */
+    public String getAttrName(int attr) {
+        return attrNames[attr];
+    }
+
+    /**
+     * get the column position of an attribute
+     * @param attrName attribute name
+     * @return column position, -1 if the attribute does not exist
+     */
+    public int getAttrIndex(String attrName) {
+        Integer index = attrIndexMap.get(attrName);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * get attribute value of an instance
+     * @param attr column position
+     * @param row instance position
+     * @return 0 or 1
+     */
+    public int getValue(int attr, int row) {
+        return (int) (columns[attr][row >>> 6] >>> row) & 1;
+    }
+
+    /**
+     * get class label of an instance
+     * @param row instance position
+     * @return 0 or 1
+     */
+    public int getLabel(int row) {
+        return (int) (labels[row >>> 6] >>> row) & 1;
+    }
+
+    /**
+     * check whether the data set is multi-class: it has more than two class labels, or it took the class
+     * mode of a multi-class training data set
+     * @return true for a multi-class data set
+     */
+    public boolean isMultiClass() {
+        return multiClass;
+    }
+
+    /**
+     * get the number of classes, 2 for a binary data set
+     * @return number of classes
+     */
+    public int getClassCount() {
+        return classNames.length;
+    }
+
+    /**
+     * get the class label of a class code
+     * @param code class code
+     * @return class label
+     */
+    public String getClassName(int code) {
+        return classNames[code];
+    }
+
+    /**
+     * get the class code of a class label
+     * @param className class label
+     * @return class code, -1 if no instance has the class label
+     */
+    public int getClassIndex(String className) {
+        Integer index = classIndexMap.get(className);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * get the class code of an instance, the same as getLabel for a binary data set
+     * @param row instance position
+     * @return class code
+     */
+    public int getClassCode(int row) {
+        return isMultiClass() ? rawCodes[row] : getLabel(row);
+    }
+
+    /**
+     * get the dictionary of the class labels as read from the file
+     * @return class labels by dictionary code, callers must not modify it
+     */
+    String[] getRawClassNames() {
+        return rawNames;
+    }
+
+    /**
+     * get the dictionary codes of the class labels as read from the file
+     * @return dictionary code of every instance, callers must not modify it
+     */
+    short[] getRawClassCodes() {
+        return rawCodes;
+    }
+
+    /**
+     * get the packed words of a class, callers must not modify it
+     * @param code class code
+     * @return packed column, bit set if the instance has the class
+     */
+    long[] getClassColumn(int code) {
+        return classColumns[code];
+    }
+
+    /**
+     * get the packed words of an attribute column, callers must not modify it
+     * @param attr column position
+     * @return packed column
+     */
+    long[] getColumn(int attr) {
+        return columns[attr];
+    }
+
+    /**
+     * get the packed words of the class label column, callers must not modify it
+     * @return packed class labels
+     */
+    long[] getLabelColumn() {
+        return labels;
+    }
+}
@@ -0,0 +1,55 @@
+package asg2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: helpers shared by the binary file formats (data set snapshots, model files, column stores).
+ * A file is written to a temporary file of its own in the target directory and moved over the target
+ * atomically, so concurrent writers never share a temporary file and a reader sees either the old or the
+ * new file, never a partial one
+ */
+final class BinaryFiles {
+    private BinaryFiles() {
+    }
+
+    /**
+     * create an empty temporary file with a unique name in the directory of a target file
+     * @param target file the temporary file will replace
+     * @return temporary file
+     * @throws IOException if the file can not be created
+     */
+    static File createTempFile(File target) throws IOException {
+        File dir = target.getAbsoluteFile().getParentFile();
+        return File.createTempFile(target.getName() + ".", ".tmp", dir);
+    }
+
+    /**
+     * move a completely written temporary file over the target file in one step
+     * @param tmpFile temporary file from createTempFile
+     * @param target target file, replaced if it exists
+     * @throws IOException if the file can not be moved, the temporary file is deleted then
+     */
+    static void replace(File tmpFile, File target) throws IOException {
+        try {
+            Files.move(tmpFile.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            tmpFile.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * round a byte offset up to a multiple of 8
+     * @param offset offset
+     * @return aligned offset
+     */
+    static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+}
@@ -0,0 +1,280 @@
+package asg2;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: column oriented data set for categorical attributes such as colour or region. Every column is
+ * dictionary encoded when the file is loaded: each distinct value gets the next small integer code in order
+ * of first appearance, so a column is a short[] of codes and the raw strings are dropped after parsing.
+ * Class labels are encoded the same way. A validation or test file is loaded with the dictionaries of the
+ * training data set, its known values keep the training codes and unseen values get codes after them
+ */
+public class CategoricalDataSet {
+    private String[] attrNames;
+    private short[][] codes; // codes[attr][row], dictionary code of the attribute value
+    private String[][] values; // values[attr][code], attribute value of a dictionary code
+    private short[] classCodes; // dictionary code of the class label of every instance
+    private String[] classNames; // class label by class code
+    private int size;
+    private Map<String, Integer> attrIndexMap; // attribute name --> column position
+    private Map<String, Integer> classIndexMap; // class label --> class code
+    private List<Map<String, Integer>> valueIndexMaps; // attribute value --> dictionary code, by column
+
+    private CategoricalDataSet(String[] attrNames, short[][] codes, String[][] values, short[] classCodes,
+                               String[] classNames, int size) {
+        this.attrNames = attrNames;
+        this.codes = codes;
+        this.values = values;
+        this.classCodes = classCodes;
+        this.classNames = classNames;
+        this.size = size;
+
+        attrIndexMap = new HashMap<>();
+        for (int i = 0; i < attrNames.length; i++)
+            attrIndexMap.put(attrNames[i], i);
+        classIndexMap = new HashMap<>();
+        for (int i = 0; i < classNames.length; i++)
+            classIndexMap.put(classNames[i], i);
+        valueIndexMaps = new ArrayList<>();
+        for (String[] attrValues : values) {
+            Map<String, Integer> valueIndexMap = new HashMap<>();
+            for (int i = 0; i < attrValues.length; i++)
+                valueIndexMap.put(attrValues[i], i);
+            valueIndexMaps.add(valueIndexMap);
+        }
+    }
+
+    /**
+     * load a training file, the dictionaries are built from its values
+     * @param path csv file path
+     * @return data set
+     * @throws IOException if the file can not be read or an instance is malformed
+     */
+    public static CategoricalDataSet load(String path) throws IOException {
+        return load(path, null);
+    }
+
+    /**
+     * read a csv file and dictionary encode its columns
+     * @param path csv file path
+     * @param training data set whose dictionaries are extended, null to start with empty dictionaries
+     * @return data set
+     * @throws IOException if the file can not be read, an instance is malformed or a column has more than
+     *                     ClassDictionary.MAX_CLASSES distinct values
+     */
+    public static CategoricalDataSet load(String path, CategoricalDataSet training) throws IOException {
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.LOAD);
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(path),
+                Charset.forName("UTF-8")))) {
+            String line = br.readLine();
+            if (line == null)
+                throw new IOException(path + " is empty");
+
+            String[] header = line.split(",");
+            String[] attrNames = Arrays.copyOf(header, header.length - 1); // 'Class' is excluded
+            if (training != null && !Arrays.equals(training.attrNames, attrNames))
+                throw new IOException(path + " does not have the attributes of the training data set");
+
+            ClassDictionary[] dictionaries = new ClassDictionary[header.length]; // the last one is for labels
+            for (int attr = 0; attr < header.length; attr++) {
+                dictionaries[attr] = new ClassDictionary();
+                if (training == null)
+                    continue;
+
+                String[] known = attr < attrNames.length ? training.values[attr] : training.classNames;
+                for (String value : known)
+                    dictionaries[attr].encode(value);
+            }
+
+            short[][] columns = new short[header.length][1024];
+            int size = 0;
+            try {
+                while ((line = br.readLine()) != null) {
+                    if (line.isEmpty())
+                        continue;
+
+                    String[] fields = line.split(",", -1);
+                    if (fields.length != header.length)
+                        throw new IOException("instance " + (size + 1) + " of " + path + " has " + fields.length +
+                                " fields, expected " + header.length);
+                    if (size == columns[0].length) {
+                        for (int attr = 0; attr < columns.length; attr++)
+                            columns[attr] = Arrays.copyOf(columns[attr], size * 2);
+                    }
+                    for (int attr = 0; attr < header.length; attr++)
+                        columns[attr][size] = (short) dictionaries[attr].encode(fields[attr].trim());
+                    size++;
+                }
+            } catch (IllegalStateException e) {
+                throw new IOException(path + " has too many distinct values in a column", e);
+            }
+
+            short[][] codes = new short[attrNames.length][];
+            String[][] values = new String[attrNames.length][];
+            for (int attr = 0; attr < attrNames.length; attr++) {
+                codes[attr] = Arrays.copyOf(columns[attr], size);
+                values[attr] = dictionaries[attr].getNames();
+            }
+
+            TrainingMetrics.end(timer, size);
+            return new CategoricalDataSet(attrNames, codes, values, Arrays.copyOf(columns[attrNames.length], size),
+                    dictionaries[attrNames.length].getNames(), size);
+        }
+    }
+
+    /**
+     * get the number of instances
+     * @return number of instances
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * get the number of attributes
+     * @return number of attributes
+     */
+    public int getAttrCount() {
+        return attrNames.length;
+    }
+
+    /**
+     * get attribute name by column position
+     * @param attr column position
+     * @return attribute name
+     */
+    public String getAttrName(int attr) {
+        return attrNames[attr];
+    }
+
+    /**
+     * get column position by attribute name
+     * @param attrName attribute name
+     * @return column position, -1 if the attribute does not exist
+     */
+    public int getAttrIndex(String attrName) {
+        Integer index = attrIndexMap.get(attrName);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * get the number of distinct values of an attribute
+     * @param attr column position
+     * @return number of dictionary codes
+     */
+    public int getValueCount(int attr) {
+        return values[attr].length;
+    }
+
+    /**
+     * get the attribute value of a dictionary code
+     * @param attr column position
+     * @param code dictionary code
+     * @return attribute value
+     */
+    public String getValue(int attr, int code) {
+        return values[attr][code];
+    }
+
+    /**
+     * get the dictionary code of an attribute value
+     * @param attr column position
+     * @param value attribute value
+     * @return dictionary code, -1 if no instance has the value
+     */
+    public int getCodeOf(int attr, String value) {
+        Integer code = valueIndexMaps.get(attr).get(value);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * get the dictionary code of an attribute value of an instance
+     * @param attr column position
+     * @param row instance position
+     * @return dictionary code
+     */
+    public int getCode(int attr, int row) {
+        return codes[attr][row];
+    }
+
+    /**
+     * get the number of distinct class labels
+     * @return number of class codes
+     */
+    public int getClassCount() {
+        return classNames.length;
+    }
+
+    /**
+     * get the class label of a class code
+     * @param code class code
+     * @return class label
+     */
+    public String getClassName(int code) {
+        return classNames[code];
+    }
+
+    /**
+     * get the class code of a class label
+     * @param className class label
+     * @return class code, -1 if no instance has the class label
+     */
+    public int getClassIndex(String className) {
+        Integer index = classIndexMap.get(className);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * get the class code of an instance
+     * @param row instance position
+     * @return class code
+     */
+    public int getClassCode(int row) {
+        return classCodes[row];
+    }
+
+    /**
+     * get the code column of an attribute, the array must not be modified
+     * @param attr column position
+     * @return dictionary codes
+     */
+    short[] getCodeColumn(int attr) {
+        return codes[attr];
+    }
+
+    /**
+     * get the values of an attribute by dictionary code, the array must not be modified
+     * @param attr column position
+     * @return attribute values
+     */
+    String[] getValues(int attr) {
+        return values[attr];
+    }
+
+    /**
+     * get the class labels by class code, the array must not be modified
+     * @return class labels
+     */
+    String[] getClassNames() {
+        return classNames;
+    }
+
+    /**
+     * get the class code column, the array must not be modified
+     * @return class codes
+     */
+    short[] getClassCodes() {
+        return classCodes;
+    }
+}
@@ -0,0 +1,240 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: build an ID3 tree with multi-way splits on categorical attributes, a node splitting on an
+ * attribute gets one child per value instead of one-hot columns "attribute = value" which are tested one
+ * at a time. The (value, class) counts of all children of a candidate come from a single counting pass over
+ * the attribute's codes of the node's instances, so a candidate costs one pass no matter how many values
+ * it has. An attribute is used at most once on a path, because each child of its split has only one value.
+ * Like TreeBuilder, the nodes share one array of instance positions, a split reorders a node's range into
+ * consecutive ranges of its children by a counting sort on the split attribute
+ */
+public class CategoricalTreeBuilder {
+    private CategoricalDataSet dataSet;
+    private double[] nLogN; // nLogN[k] = k * log2(k)
+    private int classCount;
+    private int zeroClass; // class code of the class label "0", -1 if there is none
+    private int[] rows; // instance positions, node ranges are reordered in place
+    private int[] buffer; // target of the counting sort
+    private int[] counts; // (value, class) counts of the candidate attribute being scored
+    private int nodeCount = 0;
+    private int leafCount = 0;
+    private long splitEvaluations = 0; // scored candidates, only counted with metrics
+    private long rowsScanned = 0; // instance visits of the counting passes, only counted with metrics
+
+    /**
+     * constructor
+     * @param dataSet training data set
+     */
+    public CategoricalTreeBuilder(CategoricalDataSet dataSet) {
+        this.dataSet = dataSet;
+        this.nLogN = SplitScorer.createTable(dataSet.getSize());
+        this.classCount = dataSet.getClassCount();
+        this.zeroClass = dataSet.getClassIndex("0");
+        int maxValues = 1;
+        for (int attr = 0; attr < dataSet.getAttrCount(); attr++)
+            maxValues = Math.max(maxValues, dataSet.getValueCount(attr));
+        counts = new int[maxValues * classCount];
+    }
+
+    /**
+     * build a tree using all instances of the data set
+     * @return root node, null if the data set is empty
+     */
+    public TreeNode build() {
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.BUILD);
+        splitEvaluations = 0;
+        rowsScanned = 0;
+        rows = new int[dataSet.getSize()];
+        for (int i = 0; i < rows.length; i++)
+            rows[i] = i;
+        buffer = new int[rows.length];
+
+        nodeCount = 0;
+        leafCount = 0;
+        TreeNode root = null;
+        if (rows.length > 0)
+            root = build(0, rows.length, 0, new boolean[dataSet.getAttrCount()]);
+
+        rows = null;
+        buffer = null;
+        TrainingMetrics.endBuild(timer, root, splitEvaluations, rowsScanned);
+        return root;
+    }
+
+    /**
+     * get the number of nodes of the last built tree
+     * @return number of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * get the number of leaf nodes of the last built tree
+     * @return number of leaf nodes
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * build the subtree of the instances rows[from, to), nodes are numbered in pre-order
+     * @param from start position, inclusive
+     * @param to end position, exclusive
+     * @param height the height of the node
+     * @param used attributes split on by the ancestors, restored before returning
+     * @return constructed node
+     */
+    private TreeNode build(int from, int to, int height, boolean[] used) {
+        int total = to - from;
+        int[] classCounts = new int[classCount];
+        short[] classCodes = dataSet.getClassCodes();
+        for (int i = from; i < to; i++)
+            classCounts[classCodes[rows[i]]]++;
+
+        int splitAttr = -1;
+        int majority = DecisionTreeID3.majorityClass(classCounts);
+        if (classCounts[majority] != total) {
+            // every sum is symmetric like in SplitScorer, ties go to the first attribute
+            double parent = SplitScorer.nLogN(nLogN, total);
+            for (int count : classCounts)
+                parent -= SplitScorer.nLogN(nLogN, count);
+            double gainMax = 1e-9 * total;
+            for (int attr = 0; attr < dataSet.getAttrCount(); attr++) {
+                if (used[attr])
+                    continue;
+
+                double gain = parent - countChildren(from, to, attr);
+                if (gain > gainMax) {
+                    gainMax = gain;
+                    splitAttr = attr;
+                }
+            }
+        }
+
+        int countZero = zeroClass == -1 ? 0 : classCounts[zeroClass];
+        TreeNode node = new TreeNode(nodeCount++, height, splitAttr == -1 ? null : dataSet.getAttrName(splitAttr),
+                splitAttr == -1 ? dataSet.getClassName(majority) : null, countZero, total - countZero);
+        node.classCounts = classCounts;
+        node.classNames = dataSet.getClassNames();
+        if (splitAttr == -1) {
+            leafCount++;
+            return node;
+        }
+
+        int[] childStart = partition(from, to, splitAttr);
+        node.branchValues = dataSet.getValues(splitAttr);
+        node.children = new TreeNode[node.branchValues.length];
+        used[splitAttr] = true;
+        for (int value = 0; value < node.children.length; value++) {
+            if (childStart[value] < childStart[value + 1])
+                node.children[value] = build(childStart[value], childStart[value + 1], height + 1, used);
+        }
+        used[splitAttr] = false;
+
+        return node;
+    }
+
+    /**
+     * count (value, class) pairs of an attribute over the instances rows[from, to) in one pass and sum up the
+     * entropy of the children of a split on it
+     * @param from start position, inclusive
+     * @param to end position, exclusive
+     * @param attr column position of the candidate attribute
+     * @return sum over the children of count * entropy, in bits
+     */
+    private double countChildren(int from, int to, int attr) {
+        if (TrainingMetrics.ENABLED) {
+            splitEvaluations++;
+            rowsScanned += to - from;
+        }
+        int cells = dataSet.getValueCount(attr) * classCount;
+        Arrays.fill(counts, 0, cells, 0);
+        short[] column = dataSet.getCodeColumn(attr);
+        short[] classCodes = dataSet.getClassCodes();
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            counts[column[row] * classCount + classCodes[row]]++;
+        }
+
+        double children = 0;
+        for (int cell = 0; cell < cells; cell += classCount) {
+            int valueCount = 0;
+            double classSum = 0;
+            for (int c = cell; c < cell + classCount; c++) {
+                valueCount += counts[c];
+                classSum += SplitScorer.nLogN(nLogN, counts[c]);
+            }
+            children += SplitScorer.nLogN(nLogN, valueCount) - classSum;
+        }
+
+        return children;
+    }
+
+    /**
+     * reorder the instances rows[from, to) by their value of the split attribute with a counting sort
+     * @param from start position, inclusive
+     * @param to end position, exclusive
+     * @param splitAttr column position of split attribute
+     * @return start position of the instances of every value, followed by to
+     */
+    private int[] partition(int from, int to, int splitAttr) {
+        short[] column = dataSet.getCodeColumn(splitAttr);
+        int[] start = new int[dataSet.getValueCount(splitAttr) + 1];
+        for (int i = from; i < to; i++)
+            start[column[rows[i]] + 1]++;
+        start[0] = from;
+        for (int value = 1; value < start.length; value++)
+            start[value] += start[value - 1];
+
+        int[] next = Arrays.copyOf(start, start.length - 1);
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            buffer[next[column[row]]++] = row;
+        }
+        System.arraycopy(buffer, from, rows, from, to - from);
+
+        return start;
+    }
+
+    /**
+     * train a tree on categorical csv files and report its accuracy
+     * @param args training, validation and test data set paths
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: CategoricalTreeBuilder <training set> <validation set> <test set>");
+            return;
+        }
+
+        try {
+            CategoricalDataSet trainSet = CategoricalDataSet.load(args[0]);
+            CategoricalDataSet validationSet = CategoricalDataSet.load(args[1], trainSet);
+            CategoricalDataSet testSet = CategoricalDataSet.load(args[2], trainSet);
+
+            long start = System.nanoTime();
+            CategoricalTreeBuilder builder = new CategoricalTreeBuilder(trainSet);
+            TreeNode root = builder.build();
+            System.out.println("Built a tree with " + builder.getNodeCount() + " nodes and " +
+                    builder.getLeafCount() + " leaf nodes in " + (System.nanoTime() - start) / 1000000 + " ms");
+
+            String[] names = {"training", "validation", "testing"};
+            CategoricalDataSet[] dataSets = {trainSet, validationSet, testSet};
+            for (int i = 0; i < dataSets.length; i++) {
+                CompiledTree tree = CompiledTree.compile(root, dataSets[i]);
+                System.out.println("Accuracy of the model on the " + names[i] + " data set = " +
+                        (double) tree.countCorrect(dataSets[i]) / dataSets[i].getSize());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package asg2;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: dictionary encoding of class labels, and of categorical attribute values, while a file is
+ * read. Every distinct class label gets the next code in order of first appearance. Labels are looked up by
+ * their raw bytes in an open addressing table, so a String is only created for a label which has not been
+ * seen before
+ */
+class ClassDictionary {
+    static final int MAX_CLASSES = Short.MAX_VALUE; // codes are stored as short
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private byte[][] keys = new byte[16][]; // label bytes by table slot, null for an empty slot
+    private int[] codes = new int[16]; // code by table slot
+    private String[] names = new String[4]; // label by code
+    private int size = 0;
+
+    /**
+     * get the code of a label, the label is added if it is new
+     * @param bytes buffer holding the label bytes
+     * @param length number of label bytes at the start of the buffer
+     * @return code
+     * @throws IllegalStateException if there are more than MAX_CLASSES labels
+     */
+    int encode(byte[] bytes, int length) {
+        int hash = 1;
+        for (int i = 0; i < length; i++)
+            hash = 31 * hash + bytes[i];
+
+        int mask = keys.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (keys[slot] != null) {
+            byte[] key = keys[slot];
+            if (key.length == length && equalPrefix(key, bytes, length))
+                return codes[slot];
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == MAX_CLASSES)
+            throw new IllegalStateException("more than " + MAX_CLASSES + " class labels");
+        byte[] key = Arrays.copyOf(bytes, length);
+        keys[slot] = key;
+        codes[slot] = size;
+        if (size == names.length)
+            names = Arrays.copyOf(names, size * 2);
+        names[size] = new String(key, UTF_8);
+        if (++size * 2 > keys.length)
+            rehash();
+
+        return size - 1;
+    }
+
+    /**
+     * get the code of a label, the label is added if it is new
+     * @param label class label
+     * @return code
+     */
+    int encode(String label) {
+        byte[] bytes = label.getBytes(UTF_8);
+        return encode(bytes, bytes.length);
+    }
+
+    /**
+     * check whether a key equals the first bytes of a buffer
+     * @param key key
+     * @param bytes buffer
+     * @param length number of bytes to compare
+     * @return true if they are equal
+     */
+    private static boolean equalPrefix(byte[] key, byte[] bytes, int length) {
+        for (int i = 0; i < length; i++) {
+            if (key[i] != bytes[i])
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * double the table
+     */
+    private void rehash() {
+        byte[][] oldKeys = keys;
+        int[] oldCodes = codes;
+        keys = new byte[oldKeys.length * 2][];
+        codes = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            byte[] key = oldKeys[i];
+            if (key == null)
+                continue;
+
+            int hash = 1;
+            for (byte b : key)
+                hash = 31 * hash + b;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (keys[slot] != null)
+                slot = (slot + 1) & mask;
+            keys[slot] = key;
+            codes[slot] = oldCodes[i];
+        }
+    }
+
+    /**
+     * get the number of labels
+     * @return number of labels
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * get the labels in code order
+     * @return labels
+     */
+    String[] getNames() {
+        return Arrays.copyOf(names, size);
+    }
+}
@@ -0,0 +1,701 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: a decision tree flattened into arrays for prediction. Nodes are numbered in pre-order, the
+ * split attribute of every node is resolved to its column position once when the tree is compiled, so an
+ * instance is classified by a loop over the arrays without recursion, map lookups or allocation.
+ * A bit packed data set is scored 64 instances at a time: the mask of the instances reaching a node is
+ * split into (mask & ~column) for the left child and (mask & column) for the right child.
+ * A multi-class tree predicts class codes of the data set it was compiled for, the correct predictions of
+ * a leaf node are counted as bitCount(mask & class column of its class).
+ * A tree with multi-way splits on categorical attributes keeps a branch table per internal node, indexed by
+ * the value codes of the data set it was compiled for, an instance whose value has no child stops at the node
+ */
+public class CompiledTree {
+    private int[] featureIndex; // column position of split attribute, -1 for a leaf node
+    private int[] left; // child for attribute value 0
+    private int[] right; // child for attribute value 1
+    private byte[] leafLabel; // class label of a leaf node, majority class label of an internal node
+    private int[] splitBin; // last bucket of the left child of a numeric split, null for binary attributes
+    private short[] leafClass; // class code predicted by a node of a multi-class tree, -1 if the data set
+                               // does not have the class, null for a binary tree
+    private int[] branchStart; // first entry of a node's branch table, followed by the end, categorical only
+    private int[] branches; // child by value code of the data set, -1 for a value without a child
+    private int maxDepth = 0; // number of edges on the longest path from the root
+
+    private CompiledTree(int nodeCount) {
+        featureIndex = new int[nodeCount];
+        left = new int[nodeCount];
+        right = new int[nodeCount];
+        leafLabel = new byte[nodeCount];
+    }
+
+    /**
+     * compile a tree for a data set
+     * @param root root node
+     * @param dataSet data set whose column positions are used
+     * @return compiled tree
+     */
+    public static CompiledTree compile(TreeNode root, BinaryDataSet dataSet) {
+        Map<String, Integer> attrPositions = new HashMap<>();
+        for (int i = 0; i < dataSet.getAttrCount(); i++)
+            attrPositions.put(dataSet.getAttrName(i), i);
+
+        return compileByName(root, attrPositions, null, dataSet);
+    }
+
+    /**
+     * compile a tree with numeric splits for a data set, thresholds are turned into bucket numbers
+     * @param root root node
+     * @param dataSet data set whose column positions and buckets are used
+     * @return compiled tree
+     */
+    public static CompiledTree compile(TreeNode root, NumericDataSet dataSet) {
+        Map<String, Integer> attrPositions = new HashMap<>();
+        for (int i = 0; i < dataSet.getAttrCount(); i++)
+            attrPositions.put(dataSet.getAttrName(i), i);
+
+        return compileByName(root, attrPositions, dataSet.getBinning(), null);
+    }
+
+    /**
+     * compile a tree for a sparse data set
+     * @param root root node
+     * @param dataSet data set whose column positions are used
+     * @return compiled tree
+     */
+    public static CompiledTree compile(TreeNode root, SparseDataSet dataSet) {
+        Map<String, Integer> attrPositions = new HashMap<>();
+        for (int i = 0; i < dataSet.getAttrCount(); i++)
+            attrPositions.put(dataSet.getAttrName(i), i);
+
+        return compileByName(root, attrPositions, null, null);
+    }
+
+    /**
+     * compile a tree with multi-way splits for a categorical data set, the attribute values and class labels
+     * of the tree are resolved to the dictionary codes of the data set
+     * @param root root node
+     * @param dataSet data set whose column positions, value codes and class codes are used
+     * @return compiled tree
+     */
+    public static CompiledTree compile(TreeNode root, CategoricalDataSet dataSet) {
+        if (root == null)
+            throw new IllegalArgumentException("tree is empty");
+        if (root.classCounts == null)
+            throw new IllegalArgumentException("a categorical data set needs a tree built by CategoricalTreeBuilder");
+
+        // children for values the data set does not have are unreachable and left out
+        int nodeCount = 0, branchCount = 0;
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            TreeNode node = stack.pop();
+            nodeCount++;
+            if (node.children == null)
+                continue;
+
+            int pos = dataSet.getAttrIndex(node.attribute);
+            if (pos == -1)
+                throw new IllegalArgumentException("data set does not contain attribute " + node.attribute);
+            branchCount += dataSet.getValueCount(pos);
+            for (int i = 0; i < node.children.length; i++) {
+                if (node.children[i] != null && dataSet.getCodeOf(pos, node.branchValues[i]) != -1)
+                    stack.push(node.children[i]);
+            }
+        }
+
+        CompiledTree tree = new CompiledTree(nodeCount);
+        tree.leafClass = new short[nodeCount];
+        tree.branchStart = new int[nodeCount + 1];
+        tree.branches = new int[branchCount];
+        Deque<Integer> parentEntries = new ArrayDeque<>(); // branch table entry pointing to a node, -1 for root
+        stack.push(root);
+        parentEntries.push(-1);
+        int index = 0, entry = 0;
+        while (!stack.isEmpty()) {
+            TreeNode node = stack.pop();
+            int parentEntry = parentEntries.pop();
+            if (parentEntry != -1)
+                tree.branches[parentEntry] = index;
+
+            tree.branchStart[index] = entry;
+            String label = DecisionTreeID3.majorityLabel(node);
+            tree.leafClass[index] = (short) classCode(label, dataSet.getClassIndex(label));
+            if (node.children == null) {
+                tree.featureIndex[index++] = -1;
+                continue;
+            }
+
+            int pos = dataSet.getAttrIndex(node.attribute);
+            tree.featureIndex[index++] = pos;
+            int valueCount = dataSet.getValueCount(pos);
+            Arrays.fill(tree.branches, entry, entry + valueCount, -1);
+            for (int i = node.children.length - 1; i >= 0; i--) {
+                int code = node.children[i] == null ? -1 : dataSet.getCodeOf(pos, node.branchValues[i]);
+                if (code != -1) {
+                    stack.push(node.children[i]);
+                    parentEntries.push(entry + code);
+                }
+            }
+            entry += valueCount;
+        }
+        tree.branchStart[nodeCount] = entry;
+        tree.maxDepth = tree.calMaxDepth();
+
+        return tree;
+    }
+
+    /**
+     * compile a tree for the instances produced by DataProcessUtil.processData()
+     * @param root root node
+     * @param attrPosMap attribute position --> name map
+     * @return compiled tree
+     */
+    public static CompiledTree compile(TreeNode root, Map<Integer, String> attrPosMap) {
+        Map<String, Integer> attrPositions = new HashMap<>();
+        for (Map.Entry<Integer, String> entry : attrPosMap.entrySet())
+            attrPositions.put(entry.getValue(), entry.getKey());
+
+        return compileByName(root, attrPositions, null, null);
+    }
+
+    /**
+     * create a compiled tree from node arrays in pre-order, the arrays are used without copying
+     * @param featureIndex column position of split attribute, -1 for a leaf node
+     * @param left child for attribute value 0
+     * @param right child for attribute value 1
+     * @param leafLabel class label a node predicts when it is used as a leaf node
+     * @return compiled tree
+     */
+    static CompiledTree fromArrays(int[] featureIndex, int[] left, int[] right, byte[] leafLabel) {
+        return fromArrays(featureIndex, left, right, leafLabel, null);
+    }
+
+    /**
+     * create a compiled tree from node arrays in pre-order, the arrays are used without copying
+     * @param featureIndex column position of split attribute, -1 for a leaf node
+     * @param left child for attribute value 0
+     * @param right child for attribute value 1
+     * @param leafLabel class label a node predicts when it is used as a leaf node
+     * @param leafClass class code a node of a multi-class tree predicts, null for a binary tree
+     * @return compiled tree
+     */
+    static CompiledTree fromArrays(int[] featureIndex, int[] left, int[] right, byte[] leafLabel,
+                                   short[] leafClass) {
+        CompiledTree tree = new CompiledTree(0);
+        tree.featureIndex = featureIndex;
+        tree.left = left;
+        tree.right = right;
+        tree.leafLabel = leafLabel;
+        tree.leafClass = leafClass;
+        tree.maxDepth = tree.calMaxDepth();
+        return tree;
+    }
+
+    /**
+     * compile a tree, nodes are numbered in pre-order
+     * @param root root node
+     * @param attrPositions attribute name --> column position map
+     * @param binning buckets of a numeric data set, null for binary attributes
+     * @param classes data set whose class codes a multi-class tree predicts, may be null for a binary tree
+     * @return compiled tree
+     */
+    private static CompiledTree compileByName(TreeNode root, Map<String, Integer> attrPositions,
+                                              QuantileBinning binning, BinaryDataSet classes) {
+        if (root == null)
+            throw new IllegalArgumentException("tree is empty");
+
+        CompiledTree tree = new CompiledTree(countNodes(root));
+        if (binning != null)
+            tree.splitBin = new int[tree.featureIndex.length];
+        if (root.classCounts != null) {
+            if (classes == null || !classes.isMultiClass())
+                throw new IllegalArgumentException("a multi-class tree needs a multi-class data set, load it " +
+                        "with BinaryDataSet.withClassesOf the training data set");
+            tree.leafClass = new short[tree.featureIndex.length];
+        } else if (classes != null && classes.isMultiClass()) {
+            throw new IllegalArgumentException("a binary tree can not score a multi-class data set");
+        }
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        Deque<Integer> rightParents = new ArrayDeque<>(); // parent index of a right child, -1 otherwise
+        stack.push(root);
+        rightParents.push(-1);
+        int index = 0;
+        while (!stack.isEmpty()) {
+            TreeNode node = stack.pop();
+            int rightParent = rightParents.pop();
+            if (rightParent != -1)
+                tree.right[rightParent] = index;
+
+            tree.leafLabel[index] = majorityLabel(node);
+            if (tree.leafClass != null) {
+                String label = DecisionTreeID3.majorityLabel(node);
+                tree.leafClass[index] = (short) classCode(label, classes.getClassIndex(label));
+            }
+            if (node.children != null)
+                throw new IllegalArgumentException("multi-way split on " + node.attribute +
+                        " needs a categorical data set");
+            if (isLeaf(node)) {
+                tree.featureIndex[index] = -1;
+            } else {
+                Integer pos = attrPositions.get(node.attribute);
+                if (pos == null)
+                    throw new IllegalArgumentException("data set does not contain attribute " + node.attribute);
+
+                if (Double.isNaN(node.threshold) != (binning == null))
+                    throw new IllegalArgumentException("split on " + node.attribute + " does not match the " +
+                            (binning == null ? "binary" : "numeric") + " data set");
+                if (binning != null)
+                    tree.splitBin[index] = binning.bin(pos, (float) node.threshold);
+
+                tree.featureIndex[index] = pos;
+                tree.left[index] = index + 1; // pre-order: the left child follows its parent
+                stack.push(node.right);
+                rightParents.push(index);
+                stack.push(node.left);
+                rightParents.push(-1);
+            }
+            index++;
+        }
+
+        tree.maxDepth = tree.calMaxDepth();
+        return tree;
+    }
+
+    /**
+     * check the class code a node predicts
+     * @param label majority class label of the node
+     * @param code class code of the label in the data set, -1 if it has none
+     * @return class code
+     * @throws IllegalArgumentException if the data set does not have the class label, i.e. it was not loaded
+     *                                  with the classes of the training data set
+     */
+    static int classCode(String label, int code) {
+        if (code < 0)
+            throw new IllegalArgumentException("data set does not contain class " + label +
+                    ", load it with the classes of the training data set");
+
+        return code;
+    }
+
+    /**
+     * calculate the depth of the tree, in pre-order a child always comes after its parent
+     * @return number of edges on the longest path from the root
+     */
+    private int calMaxDepth() {
+        int[] depth = new int[featureIndex.length];
+        int max = 0;
+        for (int node = 0; node < featureIndex.length; node++) {
+            max = Math.max(max, depth[node]);
+            if (featureIndex[node] < 0)
+                continue;
+            if (branchStart != null) {
+                for (int entry = branchStart[node]; entry < branchStart[node + 1]; entry++) {
+                    if (branches[entry] != -1)
+                        depth[branches[entry]] = depth[node] + 1;
+                }
+            } else {
+                depth[left[node]] = depth[node] + 1;
+                depth[right[node]] = depth[node] + 1;
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * get the class label a node predicts when it is used as a leaf node
+     * @param node node
+     * @return class label of a leaf node, majority class label of an internal node
+     */
+    private static byte majorityLabel(TreeNode node) {
+        return (byte) (DecisionTreeID3.majorityLabel(node).equals("0") ? 0 : 1);
+    }
+
+    /**
+     * check whether a node is used as a leaf node
+     * @param node node
+     * @return true if the node has a class label or misses a child
+     */
+    private static boolean isLeaf(TreeNode node) {
+        return node.classLabel != null || node.left == null || node.right == null;
+    }
+
+    /**
+     * count the nodes which are reachable as the compiled tree sees them
+     * @param root root node
+     * @return number of nodes
+     */
+    private static int countNodes(TreeNode root) {
+        int count = 0;
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            TreeNode node = stack.pop();
+            count++;
+            if (!isLeaf(node)) {
+                stack.push(node.left);
+                stack.push(node.right);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * get the number of nodes
+     * @return number of nodes
+     */
+    public int getNodeCount() {
+        return featureIndex.length;
+    }
+
+    /**
+     * check whether the tree predicts class codes of a multi-class data set
+     * @return true for a multi-class tree
+     */
+    public boolean isMultiClass() {
+        return leafClass != null;
+    }
+
+    /**
+     * predict the class label of an instance of a data set
+     * @param dataSet data set the tree was compiled for
+     * @param row instance position
+     * @return 0 or 1, for a multi-class tree the class code, -1 if the data set does not have the class
+     */
+    public int predict(BinaryDataSet dataSet, int row) {
+        long start = TrainingMetrics.ENABLED ? System.nanoTime() : 0;
+        int node = 0;
+        while (featureIndex[node] >= 0)
+            node = dataSet.getValue(featureIndex[node], row) == 0 ? left[node] : right[node];
+
+        if (TrainingMetrics.ENABLED)
+            TrainingMetrics.recordPrediction(System.nanoTime() - start);
+        return leafClass != null ? leafClass[node] : leafLabel[node];
+    }
+
+    /**
+     * predict the class label of an instance of a numeric data set
+     * @param dataSet data set the tree was compiled for
+     * @param row instance position
+     * @return 0 or 1
+     */
+    public int predict(NumericDataSet dataSet, int row) {
+        long start = TrainingMetrics.ENABLED ? System.nanoTime() : 0;
+        int node = 0;
+        while (featureIndex[node] >= 0)
+            node = dataSet.getBin(featureIndex[node], row) <= splitBin[node] ? left[node] : right[node];
+
+        if (TrainingMetrics.ENABLED)
+            TrainingMetrics.recordPrediction(System.nanoTime() - start);
+        return leafLabel[node];
+    }
+
+    /**
+     * count the instances of a numeric data set whose class label is predicted correctly
+     * @param dataSet data set the tree was compiled for
+     * @return number of correct predictions
+     */
+    public int countCorrect(NumericDataSet dataSet) {
+        int correct = 0;
+        for (int row = 0; row < dataSet.getSize(); row++) {
+            if (predict(dataSet, row) == dataSet.getLabel(row))
+                correct++;
+        }
+
+        return correct;
+    }
+
+    /**
+     * predict the class label of an instance of a sparse data set
+     * @param dataSet data set the tree was compiled for
+     * @param row instance position
+     * @return 0 or 1
+     */
+    public int predict(SparseDataSet dataSet, int row) {
+        long start = TrainingMetrics.ENABLED ? System.nanoTime() : 0;
+        int node = 0;
+        while (featureIndex[node] >= 0)
+            node = dataSet.getValue(featureIndex[node], row) == 0 ? left[node] : right[node];
+
+        if (TrainingMetrics.ENABLED)
+            TrainingMetrics.recordPrediction(System.nanoTime() - start);
+        return leafLabel[node];
+    }
+
+    /**
+     * count the instances of a sparse data set whose class label is predicted correctly
+     * @param dataSet data set the tree was compiled for
+     * @return number of correct predictions
+     */
+    public int countCorrect(SparseDataSet dataSet) {
+        int correct = 0;
+        for (int row = 0; row < dataSet.getSize(); row++) {
+            if (predict(dataSet, row) == dataSet.getLabel(row))
+                correct++;
+        }
+
+        return correct;
+    }
+
+    /**
+     * predict the class of an instance of a categorical data set
+     * @param dataSet data set the tree was compiled for
+     * @param row instance position
+     * @return class code of the data set, -1 if the data set does not have the class
+     */
+    public int predict(CategoricalDataSet dataSet, int row) {
+        long start = TrainingMetrics.ENABLED ? System.nanoTime() : 0;
+        int node = 0;
+        while (featureIndex[node] >= 0) {
+            int entry = branchStart[node] + dataSet.getCode(featureIndex[node], row);
+            if (entry >= branchStart[node + 1] || branches[entry] == -1)
+                break; // a value without a child, the node predicts its majority class
+            node = branches[entry];
+        }
+
+        if (TrainingMetrics.ENABLED)
+            TrainingMetrics.recordPrediction(System.nanoTime() - start);
+        return leafClass[node];
+    }
+
+    /**
+     * count the instances of a categorical data set whose class is predicted correctly
+     * @param dataSet data set the tree was compiled for
+     * @return number of correct predictions
+     */
+    public int countCorrect(CategoricalDataSet dataSet) {
+        int correct = 0;
+        for (int row = 0; row < dataSet.getSize(); row++) {
+            if (predict(dataSet, row) == dataSet.getClassCode(row))
+                correct++;
+        }
+
+        return correct;
+    }
+
+    /**
+     * predict the class label of an instance produced by DataProcessUtil.processData()
+     * @param instance attribute values, a value other than "0" is treated as 1
+     * @return 0 or 1
+     */
+    public int predict(String[] instance) {
+        long start = TrainingMetrics.ENABLED ? System.nanoTime() : 0;
+        int node = 0;
+        while (featureIndex[node] >= 0)
+            node = instance[featureIndex[node]].equals("0") ? left[node] : right[node];
+
+        if (TrainingMetrics.ENABLED)
+            TrainingMetrics.recordPrediction(System.nanoTime() - start);
+        return leafLabel[node];
+    }
+
+    /**
+     * count the instances of a data set whose class label is predicted correctly
+     * @param dataSet data set the tree was compiled for
+     * @return number of correct predictions
+     */
+    public int countCorrect(BinaryDataSet dataSet) {
+        return scoreBlock(dataSet, 0, BinaryDataSet.wordCount(dataSet.getSize()), null, null, null, null);
+    }
+
+    /**
+     * count the correct predictions of a pruned variant of the tree, see TreePruner
+     * @param dataSet data set the tree was compiled for
+     * @param pruned bitset of node indices which are used as leaf nodes
+     * @return number of correct predictions
+     */
+    public int countCorrect(BinaryDataSet dataSet, long[] pruned) {
+        return scoreBlock(dataSet, 0, BinaryDataSet.wordCount(dataSet.getSize()), pruned, null, null, null);
+    }
+
+    /**
+     * count the correct predictions of a pruned variant of the tree on a subset of the instances, e.g. one
+     * fold of a cross-validation
+     * @param dataSet data set the tree was compiled for
+     * @param pruned bitset of node indices which are used as leaf nodes, may be null
+     * @param rows bitset of the instances to score, bit i of word w stands for instance w * 64 + i
+     * @return number of correct predictions among the instances of rows
+     */
+    public int countCorrect(BinaryDataSet dataSet, long[] pruned, long[] rows) {
+        return scoreBlock(dataSet, 0, BinaryDataSet.wordCount(dataSet.getSize()), pruned, rows, null, null);
+    }
+
+    /**
+     * predict the class labels of all instances of a data set
+     * @param dataSet data set the tree was compiled for
+     * @return packed predictions, bit i of word w is set if instance w * 64 + i is predicted as class 1
+     */
+    public long[] predictBits(BinaryDataSet dataSet) {
+        if (leafClass != null)
+            throw new IllegalStateException("packed predictions need a tree with two classes");
+
+        long[] predictions = new long[BinaryDataSet.wordCount(dataSet.getSize())];
+        scoreBlock(dataSet, 0, predictions.length, null, null, predictions, null);
+        return predictions;
+    }
+
+    /**
+     * predict the class codes of the instances in a block of packed words with a multi-class tree
+     * @param dataSet data set the tree was compiled for
+     * @param fromWord first word, inclusive
+     * @param toWord last word, exclusive
+     * @param codes receives the class code of every instance of the block, -1 if the data set does not have
+     *              the class
+     */
+    public void predictClasses(BinaryDataSet dataSet, int fromWord, int toWord, short[] codes) {
+        if (leafClass == null)
+            throw new IllegalStateException("class codes need a multi-class tree");
+
+        scoreBlock(dataSet, fromWord, toWord, null, null, null, codes);
+    }
+
+    /**
+     * route all instances of a data set through the tree once and count per node how many instances reach it
+     * @param dataSet data set the tree was compiled for
+     * @param reached receives the number of instances reaching every node, indexed by node
+     * @param reachedCorrect receives the number of instances reaching every node whose class is the class the
+     *                       node predicts as a leaf node, indexed by node
+     */
+    public void countReached(BinaryDataSet dataSet, int[] reached, int[] reachedCorrect) {
+        long[] labels = dataSet.getLabelColumn();
+        int words = BinaryDataSet.wordCount(dataSet.getSize());
+        int[] nodeStack = new int[maxDepth + 1];
+        long[] maskStack = new long[maxDepth + 1];
+        for (int w = 0; w < words; w++) {
+            int top = 0;
+            nodeStack[0] = 0;
+            maskStack[0] = validMask(dataSet, w);
+            while (top >= 0) {
+                int node = nodeStack[top];
+                long mask = maskStack[top--];
+                reached[node] += Long.bitCount(mask);
+                if (leafClass == null)
+                    reachedCorrect[node] += Long.bitCount(mask & (leafLabel[node] == 1 ? labels[w] : ~labels[w]));
+                else if (leafClass[node] >= 0)
+                    reachedCorrect[node] += Long.bitCount(mask & dataSet.getClassColumn(leafClass[node])[w]);
+                if (featureIndex[node] < 0)
+                    continue;
+
+                long column = dataSet.getColumn(featureIndex[node])[w];
+                if ((mask & column) != 0) {
+                    nodeStack[++top] = right[node];
+                    maskStack[top] = mask & column;
+                }
+                if ((mask & ~column) != 0) {
+                    nodeStack[++top] = left[node];
+                    maskStack[top] = mask & ~column;
+                }
+            }
+        }
+    }
+
+    /**
+     * get the mask of the instances stored in a word
+     * @param dataSet data set
+     * @param w word position
+     * @return mask, the bits beyond the last instance are 0
+     */
+    private static long validMask(BinaryDataSet dataSet, int w) {
+        int size = dataSet.getSize();
+        if (w == BinaryDataSet.wordCount(size) - 1 && (size & 63) != 0)
+            return (1L << size) - 1;
+
+        return -1L;
+    }
+
+    /**
+     * score a block of packed words, every word holds 64 instances which are routed through the tree together
+     * @param dataSet data set the tree was compiled for
+     * @param fromWord first word, inclusive
+     * @param toWord last word, exclusive
+     * @param predictions receives the packed predictions at the same word positions, may be null
+     * @return number of correct predictions in the block
+     */
+    public int scoreBlock(BinaryDataSet dataSet, int fromWord, int toWord, long[] predictions) {
+        return scoreBlock(dataSet, fromWord, toWord, null, null, predictions, null);
+    }
+
+    /**
+     * score a block of packed words, every word holds 64 instances which are routed through the tree together
+     * @param dataSet data set the tree was compiled for
+     * @param fromWord first word, inclusive
+     * @param toWord last word, exclusive
+     * @param pruned bitset of node indices which are used as leaf nodes, may be null
+     * @param rows bitset of the instances to score, null for all instances
+     * @param predictions receives the packed predictions at the same word positions, may be null, is not
+     *                    written by a multi-class tree
+     * @param classPredictions receives the class code of every instance of a multi-class tree, may be null
+     * @return number of correct predictions in the block
+     */
+    int scoreBlock(BinaryDataSet dataSet, int fromWord, int toWord, long[] pruned, long[] rows, long[] predictions,
+                   short[] classPredictions) {
+        long[] labels = dataSet.getLabelColumn();
+        int[] nodeStack = new int[maxDepth + 1];
+        long[] maskStack = new long[maxDepth + 1];
+        int correct = 0;
+        for (int w = fromWord; w < toWord; w++) {
+            long valid = validMask(dataSet, w);
+            if (rows != null) {
+                valid &= rows[w];
+                if (valid == 0)
+                    continue;
+            }
+            long predicted = 0L;
+            int top = 0;
+            nodeStack[0] = 0;
+            maskStack[0] = valid;
+            while (top >= 0) {
+                int node = nodeStack[top];
+                long mask = maskStack[top--];
+                while (featureIndex[node] >= 0 && (pruned == null || (pruned[node >>> 6] & (1L << node)) == 0)) {
+                    long column = dataSet.getColumn(featureIndex[node])[w];
+                    long leftMask = mask & ~column;
+                    long rightMask = mask & column;
+                    if (leftMask == 0) {
+                        node = right[node];
+                        mask = rightMask;
+                    } else {
+                        if (rightMask != 0) {
+                            nodeStack[++top] = right[node];
+                            maskStack[top] = rightMask;
+                        }
+                        node = left[node];
+                        mask = leftMask;
+                    }
+                }
+                if (leafClass != null) {
+                    if (leafClass[node] >= 0)
+                        correct += Long.bitCount(mask & dataSet.getClassColumn(leafClass[node])[w]);
+                    if (classPredictions != null) {
+                        for (long bits = mask; bits != 0; bits &= bits - 1)
+                            classPredictions[(w << 6) + Long.numberOfTrailingZeros(bits)] = leafClass[node];
+                    }
+                } else if (leafLabel[node] == 1) {
+                    predicted |= mask;
+                }
+            }
+
+            if (leafClass != null)
+                continue;
+            if (predictions != null)
+                predictions[w] = predicted;
+            correct += Long.bitCount(~(predicted ^ labels[w]) & valid);
+        }
+
+        return correct;
+    }
+
+}
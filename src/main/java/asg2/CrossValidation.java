@@ -0,0 +1,380 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: repeated k-fold cross-validation of ID3 trees and prune factors on one data set loaded once.
+ * Every repeat shuffles the instance positions with its own seed, and fold f is the range
+ * [f * n / k, (f + 1) * n / k) of the shuffled positions, so folds are index ranges and bitsets over the
+ * shared data set, never copies. A run of fold f tests on fold f, uses the next fold as validation data for
+ * pruning, like the validation file of DecisionTreeID3, and trains on the other k - 2 folds.
+ * All (repeat, fold) runs are independent tasks on a thread pool, each builds one tree and scores every
+ * prune factor on it, factor 0 is the unpruned tree. The result only depends on the seed
+ */
+public class CrossValidation {
+    private int folds;
+    private int repeats;
+    private int threadCount;
+    private int maxTrials = 1000; // pruning trials per prune factor and run
+
+    /**
+     * constructor
+     * @param folds number of folds, at least 3
+     * @param repeats number of repeats with different shuffles, at least 1
+     * @param threadCount number of threads running folds
+     */
+    public CrossValidation(int folds, int repeats, int threadCount) {
+        if (folds < 3)
+            throw new IllegalArgumentException("cross-validation needs at least 3 folds: training, validation and test");
+        if (repeats < 1)
+            throw new IllegalArgumentException("cross-validation needs at least one repeat");
+
+        this.folds = folds;
+        this.repeats = repeats;
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * set the maximum number of random pruning trials per prune factor and run
+     * @param maxTrials maximum number of trials
+     */
+    public void setMaxTrials(int maxTrials) {
+        this.maxTrials = Math.max(1, maxTrials);
+    }
+
+    /**
+     * run the cross-validation
+     * @param dataSet data set
+     * @param pruneFactors prune factors to compare, 0 for the unpruned tree
+     * @param seed seed of the shuffles and pruning searches
+     * @return one summary per prune factor, in the same order
+     */
+    public List<Summary> run(final BinaryDataSet dataSet, final double[] pruneFactors, final long seed) {
+        if (dataSet.getSize() < folds)
+            throw new IllegalArgumentException("data set has fewer instances than folds");
+
+        final double[] nLogN = SplitScorer.createTable(dataSet.getSize());
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<FoldResult>> futures = new ArrayList<>();
+            for (int r = 0; r < repeats; r++) {
+                final int[] order = shuffle(dataSet.getSize(), SeedStreams.seed(seed, r));
+                for (int f = 0; f < folds; f++) {
+                    final int fold = f;
+                    final long runSeed = SeedStreams.seed(seed, (long) r * folds + f + repeats);
+                    futures.add(executor.submit(new Callable<FoldResult>() {
+                        @Override
+                        public FoldResult call() {
+                            return runFold(dataSet, nLogN, order, fold, pruneFactors, runSeed);
+                        }
+                    }));
+                }
+            }
+
+            List<FoldResult> results = new ArrayList<>();
+            for (Future<FoldResult> future : futures)
+                results.add(future.get());
+            return summarise(pruneFactors, results);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while cross-validating", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("a fold failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * train on the training folds of a run, prune on its validation fold and test on its test fold
+     * @param dataSet data set
+     * @param nLogN n * log2(n) table shared by all runs
+     * @param order shuffled instance positions of the repeat
+     * @param fold test fold
+     * @param pruneFactors prune factors
+     * @param seed seed of the pruning searches of the run
+     * @return result of the run
+     */
+    private FoldResult runFold(BinaryDataSet dataSet, double[] nLogN, int[] order, int fold, double[] pruneFactors,
+                               long seed) {
+        int n = order.length;
+        int validationFold = (fold + 1) % folds;
+        int testFrom = foldStart(fold, n), testTo = foldStart(fold + 1, n);
+        int validationFrom = foldStart(validationFold, n), validationTo = foldStart(validationFold + 1, n);
+
+        int[] trainRows = new int[n - (testTo - testFrom) - (validationTo - validationFrom)];
+        int pos = 0;
+        for (int i = 0; i < n; i++) {
+            if ((i < testFrom || i >= testTo) && (i < validationFrom || i >= validationTo))
+                trainRows[pos++] = order[i];
+        }
+        long[] testRows = toBits(order, testFrom, testTo, dataSet.getSize());
+        long[] validationRows = toBits(order, validationFrom, validationTo, dataSet.getSize());
+
+        FoldResult result = new FoldResult(pruneFactors.length);
+        long start = System.nanoTime();
+        TreeNode root = new TreeBuilder(dataSet, 1, nLogN).build(trainRows, new boolean[dataSet.getAttrCount()]);
+        result.buildNanos = System.nanoTime() - start;
+
+        CompiledTree compiledTree = CompiledTree.compile(root, dataSet);
+        TreePruner pruner = new TreePruner(root);
+        int validationSize = validationTo - validationFrom;
+        double unprunedAccuracy = (double) compiledTree.countCorrect(dataSet, null, validationRows) / validationSize;
+        for (int i = 0; i < pruneFactors.length; i++) {
+            start = System.nanoTime();
+            long[] pruned = pruner.newPrunedBits();
+            int pruneNodeCount = (int) (pruneFactors[i] * pruner.getNodeCount());
+            if (pruneNodeCount > 0) {
+                // the same search as DecisionTreeID3.main: at least 0.02 better than the unpruned tree
+                PruneSearch search = new PruneSearch(pruner, compiledTree, dataSet, validationRows, 1);
+                PruneSearch.Result best = search.search(pruneNodeCount, unprunedAccuracy + 0.02, maxTrials,
+                        SeedStreams.seed(seed, i));
+                if (best != null)
+                    pruned = best.getPruned();
+            }
+            result.pruneNanos[i] = System.nanoTime() - start;
+
+            result.accuracy[i] = (double) compiledTree.countCorrect(dataSet, pruned, testRows) / (testTo - testFrom);
+            int[] nodeCount = pruner.countNodes(pruned);
+            result.nodes[i] = nodeCount[0];
+            result.leaves[i] = nodeCount[1];
+        }
+
+        return result;
+    }
+
+    /**
+     * get the first shuffled position of a fold
+     * @param fold fold number, folds for the end of the last fold
+     * @param n number of instances
+     * @return position
+     */
+    private int foldStart(int fold, int n) {
+        return (int) ((long) fold * n / folds);
+    }
+
+    /**
+     * mark the instances of a range of shuffled positions in a bitset
+     * @param order shuffled instance positions
+     * @param from first position, inclusive
+     * @param to last position, exclusive
+     * @param size data set size
+     * @return bitset of the instances
+     */
+    private static long[] toBits(int[] order, int from, int to, int size) {
+        long[] bits = new long[BinaryDataSet.wordCount(size)];
+        for (int i = from; i < to; i++)
+            bits[order[i] >>> 6] |= 1L << order[i];
+
+        return bits;
+    }
+
+    /**
+     * shuffle the instance positions with Fisher-Yates
+     * @param n number of instances
+     * @param seed seed
+     * @return shuffled positions 0 .. n - 1
+     */
+    private static int[] shuffle(int n, long seed) {
+        Random random = new Random(seed);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+
+        return order;
+    }
+
+    /**
+     * aggregate the runs per prune factor
+     * @param pruneFactors prune factors
+     * @param results results of all runs
+     * @return one summary per prune factor
+     */
+    private static List<Summary> summarise(double[] pruneFactors, List<FoldResult> results) {
+        List<Summary> summaries = new ArrayList<>();
+        int runs = results.size();
+        for (int i = 0; i < pruneFactors.length; i++) {
+            double sum = 0, sumSquares = 0, nodes = 0, leaves = 0, buildMillis = 0, pruneMillis = 0;
+            for (FoldResult result : results) {
+                sum += result.accuracy[i];
+                sumSquares += result.accuracy[i] * result.accuracy[i];
+                nodes += result.nodes[i];
+                leaves += result.leaves[i];
+                buildMillis += result.buildNanos / 1e6;
+                pruneMillis += result.pruneNanos[i] / 1e6;
+            }
+            double mean = sum / runs;
+            double variance = runs > 1 ? Math.max(0, (sumSquares - runs * mean * mean) / (runs - 1)) : 0;
+            summaries.add(new Summary(pruneFactors[i], runs, mean, Math.sqrt(variance), nodes / runs,
+                    leaves / runs, buildMillis / runs, pruneMillis / runs));
+        }
+
+        return summaries;
+    }
+
+    /**
+     * result of one (repeat, fold) run
+     */
+    private static class FoldResult {
+        double[] accuracy; // test accuracy per prune factor
+        int[] nodes; // nodes per prune factor
+        int[] leaves; // leaf nodes per prune factor
+        long buildNanos;
+        long[] pruneNanos; // pruning search time per prune factor
+
+        FoldResult(int factorCount) {
+            accuracy = new double[factorCount];
+            nodes = new int[factorCount];
+            leaves = new int[factorCount];
+            pruneNanos = new long[factorCount];
+        }
+    }
+
+    /**
+     * aggregated result of one prune factor over all runs
+     */
+    public static class Summary {
+        private double pruneFactor;
+        private int runs;
+        private double meanAccuracy;
+        private double stdAccuracy;
+        private double meanNodes;
+        private double meanLeaves;
+        private double meanBuildMillis;
+        private double meanPruneMillis;
+
+        Summary(double pruneFactor, int runs, double meanAccuracy, double stdAccuracy, double meanNodes,
+                double meanLeaves, double meanBuildMillis, double meanPruneMillis) {
+            this.pruneFactor = pruneFactor;
+            this.runs = runs;
+            this.meanAccuracy = meanAccuracy;
+            this.stdAccuracy = stdAccuracy;
+            this.meanNodes = meanNodes;
+            this.meanLeaves = meanLeaves;
+            this.meanBuildMillis = meanBuildMillis;
+            this.meanPruneMillis = meanPruneMillis;
+        }
+
+        /**
+         * get the prune factor
+         * @return prune factor
+         */
+        public double getPruneFactor() {
+            return pruneFactor;
+        }
+
+        /**
+         * get the number of runs, repeats times folds
+         * @return number of runs
+         */
+        public int getRuns() {
+            return runs;
+        }
+
+        /**
+         * get the mean test accuracy over the runs
+         * @return mean accuracy
+         */
+        public double getMeanAccuracy() {
+            return meanAccuracy;
+        }
+
+        /**
+         * get the sample standard deviation of the test accuracy over the runs
+         * @return standard deviation, 0 for a single run
+         */
+        public double getStdAccuracy() {
+            return stdAccuracy;
+        }
+
+        /**
+         * get the mean number of nodes of the pruned trees
+         * @return mean number of nodes
+         */
+        public double getMeanNodes() {
+            return meanNodes;
+        }
+
+        /**
+         * get the mean number of leaf nodes of the pruned trees
+         * @return mean number of leaf nodes
+         */
+        public double getMeanLeaves() {
+            return meanLeaves;
+        }
+
+        /**
+         * get the mean build time of a tree, every prune factor shares the tree of its run
+         * @return milliseconds
+         */
+        public double getMeanBuildMillis() {
+            return meanBuildMillis;
+        }
+
+        /**
+         * get the mean time of the pruning search of this prune factor
+         * @return milliseconds
+         */
+        public double getMeanPruneMillis() {
+            return meanPruneMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("prune factor %.2f: accuracy = %.4f +- %.4f, nodes = %.1f, leaf nodes = %.1f, " +
+                    "build = %.1f ms, prune = %.1f ms (%d runs)", pruneFactor, meanAccuracy, stdAccuracy,
+                    meanNodes, meanLeaves, meanBuildMillis, meanPruneMillis, runs);
+        }
+    }
+
+    /**
+     * cross-validate prune factors on a data set
+     * @param args data set path, optionally folds, repeats and comma separated prune factors
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: CrossValidation <data set> [folds] [repeats] [prune factors, e.g. 0,0.1,0.2]");
+            return;
+        }
+
+        int folds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int repeats = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        String[] factorArgs = (args.length > 3 ? args[3] : "0,0.05,0.1,0.2,0.3").split(",");
+        double[] pruneFactors = new double[factorArgs.length];
+        for (int i = 0; i < factorArgs.length; i++)
+            pruneFactors[i] = Double.parseDouble(factorArgs[i]);
+
+        try {
+            BinaryDataSet dataSet = new ParallelDataLoader().load(args[0]);
+            long seed = Long.getLong("seed", System.nanoTime());
+            System.out.println("Random seed = " + seed);
+            System.out.println(repeats + " x " + folds + "-fold cross-validation of " + dataSet.getSize() + " instances");
+
+            long start = System.nanoTime();
+            CrossValidation cv = new CrossValidation(folds, repeats, Runtime.getRuntime().availableProcessors());
+            for (Summary summary : cv.run(dataSet, pruneFactors, seed))
+                System.out.println(summary);
+            System.out.println("Total time = " + (System.nanoTime() - start) / 1000000 + " ms");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -15,6 +15,9 @@ public class DataProcessUtil {
     private Map<Integer, List<String>> attrValMap = new HashMap<>();
     private List<String> labels = new ArrayList<>();
     private List<String[]> instanceList = new ArrayList<>();
+    private BinaryDataSet binaryDataSet;
+    private CategoricalDataSet categoricalDataSet;
+    private SparseDataSet sparseDataSet;
 
     public DataProcessUtil(String path) {
         this.path = path;
@@ -52,6 +55,69 @@ public class DataProcessUtil {
         }
     }
 
+    /**
+     * process data from a file into a bit packed column data set, attribute value and class label
+     * "0" are stored as 0, any other value is stored as 1. The string based maps except the attribute
+     * label map are not filled
+     */
+    public void processBinaryData() {
+        processBinaryData(null);
+    }
+
+    /**
+     * process data from a file into a bit packed column data set whose class labels are encoded with the
+     * classes of a training data set, e.g. a validation file which misses some training classes
+     * @param training data set whose classes are used, null if this file is the training file
+     */
+    public void processBinaryData(BinaryDataSet training) {
+        try {
+            MappedCsvParser parser = new MappedCsvParser(path);
+            binaryDataSet = parser.parse();
+            if (training != null)
+                binaryDataSet = binaryDataSet.withClassesOf(training);
+            attrLabelMap = new HashMap<>();
+            String[] attrNames = parser.getAttrNames();
+            for (int i = 0; i < attrNames.length; i++)
+                attrLabelMap.put(i, attrNames[i]);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * process data from a file into dictionary encoded columns, every distinct attribute value and class
+     * label is kept instead of being reduced to 0 and 1. The string based maps except the attribute label
+     * map are not filled
+     * @param training data set whose dictionaries are extended, null if this file is the training file
+     */
+    public void processCategoricalData(CategoricalDataSet training) {
+        try {
+            categoricalDataSet = CategoricalDataSet.load(path, training);
+            attrLabelMap = new HashMap<>();
+            for (int i = 0; i < categoricalDataSet.getAttrCount(); i++)
+                attrLabelMap.put(i, categoricalDataSet.getAttrName(i));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * process data from a LibSVM file into sorted lists of the instances whose attribute value is not 0,
+     * only the non-zero values are stored. The string based maps except the attribute label map are not
+     * filled, attributes are named by their LibSVM index
+     * @param training data set whose attributes are used, null if this file is the training file
+     */
+    public void processSparseData(SparseDataSet training) {
+        try {
+            sparseDataSet = training == null ? SparseDataSet.load(path) : SparseDataSet.load(path, training);
+            attrLabelMap = new HashMap<>();
+            for (int i = 0; i < sparseDataSet.getAttrCount(); i++)
+                attrLabelMap.put(i, sparseDataSet.getAttrName(i));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * extract attribute information from a string
      * @param attrArr input string array
@@ -120,4 +186,16 @@ public class DataProcessUtil {
     public List<String[]> getInstanceList() {
         return instanceList;
     }
+
+    public BinaryDataSet getBinaryDataSet() {
+        return binaryDataSet;
+    }
+
+    public CategoricalDataSet getCategoricalDataSet() {
+        return categoricalDataSet;
+    }
+
+    public SparseDataSet getSparseDataSet() {
+        return sparseDataSet;
+    }
 }
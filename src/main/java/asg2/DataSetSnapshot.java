@@ -0,0 +1,204 @@
+package asg2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: binary snapshot of a BinaryDataSet stored next to its csv file, so that later runs can
+ * map the packed columns instead of parsing the csv again. Layout (big endian):
+ * magic, version, source file size, source file modified time, instance count, attribute count,
+ * attribute names (length + UTF-8 bytes), class label count, class labels (length + UTF-8 bytes),
+ * padding to 8 bytes, packed columns, packed class labels, class label codes (short)
+ */
+public class DataSetSnapshot {
+    private static final int MAGIC = 0x42445331; // "BDS1"
+    private static final int VERSION = 2; // version 2 added the class labels
+    private static final String SUFFIX = ".snapshot";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private String csvPath;
+    private File snapshotFile;
+
+    /**
+     * constructor
+     * @param csvPath path of the csv file the snapshot belongs to
+     */
+    public DataSetSnapshot(String csvPath) {
+        this.csvPath = csvPath;
+        this.snapshotFile = new File(csvPath + SUFFIX);
+    }
+
+    /**
+     * check whether a snapshot exists and was written from the current version of the csv file
+     * @return true if the snapshot can be used
+     */
+    public boolean isValid() {
+        if (!snapshotFile.isFile())
+            return false;
+
+        File csvFile = new File(csvPath);
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "r");
+             FileChannel channel = file.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(24);
+            if (channel.read(header, 0) < 24)
+                return false;
+
+            header.flip();
+            return header.getInt() == MAGIC && header.getInt() == VERSION
+                    && header.getLong() == csvFile.length() && header.getLong() == csvFile.lastModified();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * read the snapshot
+     * @return data set
+     * @throws IOException if the snapshot can not be read
+     */
+    public BinaryDataSet read() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "r");
+             FileChannel channel = file.getChannel()) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE));
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException(snapshotFile + " is not a data set snapshot");
+
+            header.getLong(); // source file size
+            header.getLong(); // source file modified time
+            int size = header.getInt();
+            String[] attrNames = new String[header.getInt()];
+            for (int i = 0; i < attrNames.length; i++) {
+                byte[] bytes = new byte[header.getInt()];
+                header.get(bytes);
+                attrNames[i] = new String(bytes, UTF_8);
+            }
+            String[] classNames = new String[header.getInt()];
+            for (int i = 0; i < classNames.length; i++) {
+                byte[] bytes = new byte[header.getInt()];
+                header.get(bytes);
+                classNames[i] = new String(bytes, UTF_8);
+            }
+
+            long offset = BinaryFiles.align(header.position());
+            int words = BinaryDataSet.wordCount(size);
+            long[][] columns = new long[attrNames.length][];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = readWords(channel, offset, words);
+                offset += words * 8L;
+            }
+            long[] labels = readWords(channel, offset, words);
+            offset += words * 8L;
+            short[] classCodes = new short[size];
+            if (size > 0)
+                channel.map(FileChannel.MapMode.READ_ONLY, offset, size * 2L).asShortBuffer().get(classCodes);
+
+            return new BinaryDataSet(attrNames, columns, labels, size, classCodes, classNames);
+        }
+    }
+
+    /**
+     * write a snapshot of a data set, the snapshot is written to a temporary file of its own first and moved
+     * over the snapshot afterwards so that a concurrent reader or writer never sees a partial snapshot
+     * @param dataSet data set loaded from the csv file
+     * @param csvSize size of the csv file when it was loaded
+     * @param csvModified modified time of the csv file when it was loaded
+     * @throws IOException if the snapshot can not be written
+     */
+    public void write(BinaryDataSet dataSet, long csvSize, long csvModified) throws IOException {
+        File tmpFile = BinaryFiles.createTempFile(snapshotFile);
+        try (RandomAccessFile file = new RandomAccessFile(tmpFile, "rw");
+             FileChannel channel = file.getChannel()) {
+            int headerSize = 36;
+            byte[][] names = new byte[dataSet.getAttrCount()][];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = dataSet.getAttrName(i).getBytes(UTF_8);
+                headerSize += 4 + names[i].length;
+            }
+            String[] rawClassNames = dataSet.getRawClassNames();
+            byte[][] classNames = new byte[rawClassNames.length][];
+            for (int i = 0; i < classNames.length; i++) {
+                classNames[i] = rawClassNames[i].getBytes(UTF_8);
+                headerSize += 4 + classNames[i].length;
+            }
+
+            ByteBuffer header = ByteBuffer.allocate((int) BinaryFiles.align(headerSize));
+            header.putInt(MAGIC).putInt(VERSION).putLong(csvSize).putLong(csvModified);
+            header.putInt(dataSet.getSize()).putInt(names.length);
+            for (byte[] name : names)
+                header.putInt(name.length).put(name);
+            header.putInt(classNames.length);
+            for (byte[] name : classNames)
+                header.putInt(name.length).put(name);
+            header.position(0);
+            writeFully(channel, header);
+
+            for (int i = 0; i < names.length; i++)
+                writeWords(channel, dataSet.getColumn(i));
+            writeWords(channel, dataSet.getLabelColumn());
+            ByteBuffer codes = ByteBuffer.allocate(dataSet.getSize() * 2);
+            codes.asShortBuffer().put(dataSet.getRawClassCodes());
+            writeFully(channel, codes);
+        } catch (IOException | RuntimeException e) {
+            tmpFile.delete();
+            throw e;
+        }
+
+        BinaryFiles.replace(tmpFile, snapshotFile);
+    }
+
+    /**
+     * read packed words from a mapped region
+     * @param channel file channel
+     * @param offset byte offset of the first word
+     * @param words number of words
+     * @return words
+     * @throws IOException if the file can not be read
+     */
+    private long[] readWords(FileChannel channel, long offset, int words) throws IOException {
+        long[] result = new long[words];
+        if (words > 0) {
+            LongBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, words * 8L).asLongBuffer();
+            buffer.get(result);
+        }
+
+        return result;
+    }
+
+    /**
+     * append packed words to a file
+     * @param channel file channel
+     * @param words words
+     * @throws IOException if the file can not be written
+     */
+    private void writeWords(FileChannel channel, long[] words) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        LongBuffer longBuffer = buffer.asLongBuffer();
+        int pos = 0;
+        while (pos < words.length) {
+            int count = Math.min(longBuffer.capacity(), words.length - pos);
+            longBuffer.clear();
+            longBuffer.put(words, pos, count);
+            buffer.clear();
+            buffer.limit(count * 8);
+            writeFully(channel, buffer);
+            pos += count;
+        }
+    }
+
+    /**
+     * write the remaining bytes of a buffer
+     * @param channel file channel
+     * @param buffer buffer
+     * @throws IOException if the file can not be written
+     */
+    private void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+}
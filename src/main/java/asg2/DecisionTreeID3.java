@@ -1,5 +1,6 @@
 package asg2;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -12,9 +13,17 @@ public class DecisionTreeID3 {
     private String validationDsPath;
     private String testDsPath;
     private double pruneFactor;
+    private BinaryDataSet trainDataSet;
+    private BinaryDataSet validationDataSet;
+    private BinaryDataSet testDataSet;
     private TreeNode root;
     private int nodeId = 0; // label a node with unique node id
     private int leafNodeCount = 0;
+    private int parallelism = 1; // number of threads used to construct a tree
+    private boolean levelWise = false; // construct the tree level by level instead of depth first
+    private boolean verifyBuild = false; // compare the constructed tree with a sequential depth first build
+    private TreePruner pruner; // node lookup of the constructed tree
+    private Random random = new Random();
 
     /**
      * constructor
@@ -66,11 +75,67 @@ public class DecisionTreeID3 {
     }
 
     /**
-     * initialise
+     * set the number of threads used to construct a tree, the tree does not depend on it
+     * @param parallelism number of threads, 1 constructs the tree in the calling thread
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * construct the tree level by level with one pass over the data per level, the tree does not depend on it
+     * @param levelWise true for the level-wise builder, false for the depth first builder
+     */
+    public void setLevelWise(boolean levelWise) {
+        this.levelWise = levelWise;
+    }
+
+    /**
+     * compare every constructed tree with the tree of a sequential depth first build, which must be identical
+     * whatever the parallelism or builder. This builds every tree twice and is meant for checking a build
+     * @param verifyBuild true to compare the trees
+     */
+    public void setVerifyBuild(boolean verifyBuild) {
+        this.verifyBuild = verifyBuild;
+    }
+
+    /**
+     * get the training data set
+     * @return training data set, null if it could not be loaded
+     */
+    public BinaryDataSet getTrainDataSet() {
+        return trainDataSet;
+    }
+
+    /**
+     * get the validation data set
+     * @return validation data set, null if it could not be loaded
+     */
+    public BinaryDataSet getValidationDataSet() {
+        return validationDataSet;
+    }
+
+    /**
+     * get the test data set
+     * @return test data set, null if it could not be loaded
+     */
+    public BinaryDataSet getTestDataSet() {
+        return testDataSet;
+    }
+
+    /**
+     * initialise: load training, validation and test data set at the same time
      */
     private void initialization() {
-        DataProcessUtil dataUtil = new DataProcessUtil(trainDsPath);
-        dataUtil.processData();
+        try {
+            BinaryDataSet[] dataSets = new ParallelDataLoader().loadAll(trainDsPath, validationDsPath, testDsPath);
+            trainDataSet = dataSets[0];
+            // validation and test files may miss some classes, they take the classes of the training file
+            validationDataSet = dataSets[1].withClassesOf(trainDataSet);
+            testDataSet = dataSets[2].withClassesOf(trainDataSet);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
@@ -79,7 +144,33 @@ public class DecisionTreeID3 {
      * @param labels class label array
      */
     public void constructTree(Map<String, List<String>> attrMap, List<String> labels) {
-        root = constructTree(attrMap, labels, 0);
+        constructTree(BinaryDataSet.fromAttrMap(attrMap, labels));
+    }
+
+    /**
+     * public method: construct a tree from a bit packed column data set
+     * @param dataSet training data set
+     */
+    public void constructTree(BinaryDataSet dataSet) {
+        if (levelWise) {
+            LevelWiseTreeBuilder builder = new LevelWiseTreeBuilder(dataSet);
+            root = builder.build();
+            nodeId = builder.getNodeCount();
+            leafNodeCount = builder.getLeafCount();
+        } else {
+            TreeBuilder builder = new TreeBuilder(dataSet, parallelism);
+            root = builder.build();
+            nodeId = builder.getNodeCount();
+            leafNodeCount = builder.getLeafCount();
+        }
+        if (verifyBuild && (levelWise || parallelism > 1)) {
+            int difference = TreeBuilder.findDifference(new TreeBuilder(dataSet, 1).build(), root);
+            if (difference != -1)
+                throw new IllegalStateException("the constructed tree differs from the sequential tree at node " +
+                        difference);
+            System.out.println("The constructed tree is identical to the sequential tree");
+        }
+        pruner = root == null ? null : new TreePruner(root);
     }
 
     /**
@@ -88,42 +179,13 @@ public class DecisionTreeID3 {
      * @return pruned root node
      */
     public TreeNode pruneTree(double factor) {
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.PRUNE);
         int pruneNodeCount = (int) (factor * nodeId);
-        TreeNode copiedNode = copyTree(root);
-        pruneTree(copiedNode, pruneNodeCount);
-
-        return copiedNode;
-    }
-
-    /**
-     * prune a bunch of nodes in a tree
-     * @param node root node
-     * @param pruneNodeCount the number of nodes to be pruned
-     */
-    private void pruneTree(TreeNode node, int pruneNodeCount) {
-        List<Integer> pruneNodesIdList = new ArrayList<>();
-        for (int i = 0; i < pruneNodeCount; i++) {
-            int index = (int) (nodeId * Math.random());
-            TreeNode curNode = findNode(node, index);
-
-            // make sure the node has not been pruned yet and it is not the leaf node
-            while (pruneNodesIdList.contains(index) || (curNode != null && curNode.classLabel != null)) {
-                index = (int) (nodeId * Math.random());
-                curNode = findNode(node, index);
-            }
-
-            if (curNode != null) {
-                curNode.left = null;
-                curNode.right = null;
-                int[] labelZeroOne = new int[2];
-                labelZeroOne[0] = curNode.labelZeroCount;
-                labelZeroOne[1] = curNode.labelOneCount;
-                curNode.classLabel = getClassLabel(labelZeroOne);
-                curNode.attribute = null; // current node becomes leaf node
-            }
-            pruneNodesIdList.add(index);
-        }
+        long[] pruned = pruner.randomPrune(pruneNodeCount, random, pruner.newPrunedBits());
+        TreeNode prunedRoot = pruner.materialize(pruned);
+        TrainingMetrics.end(timer, 0);
 
+        return prunedRoot;
     }
 
     /**
@@ -157,29 +219,36 @@ public class DecisionTreeID3 {
     }
 
     /**
-     * find a node according to its id
-     * @param node root node
-     * @param id id
-     * @return node with specific id
+     * label the nodes of a tree with ids in pre-order and count them, with an explicit stack so that trees of
+     * any depth can be labelled. Children of a multi-way split are labelled in value code order
+     * @param root root node, may be null
+     * @return arr[0]: the number of all nodes, arr[1]: the number of leaf nodes
      */
-    private TreeNode findNode(TreeNode node, int id) {
-        if (node == null)
-            return null;
-
-        Queue<TreeNode> queue = new LinkedList<>();
-        queue.add(node);
-        while (!queue.isEmpty()) {
-            TreeNode curNode = queue.poll();
-            if (curNode.id == id)
-                return curNode;
+    static int[] assignIds(TreeNode root) {
+        int[] count = new int[2];
+        if (root == null)
+            return count;
 
-            if (curNode.left != null)
-                queue.add(curNode.left);
-            if (curNode.right != null)
-                queue.add(curNode.right);
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            TreeNode node = stack.pop();
+            node.id = count[0]++;
+            if (node.classLabel != null)
+                count[1]++;
+            if (node.children != null) {
+                for (int i = node.children.length - 1; i >= 0; i--) {
+                    if (node.children[i] != null)
+                        stack.push(node.children[i]);
+                }
+            }
+            if (node.right != null)
+                stack.push(node.right);
+            if (node.left != null)
+                stack.push(node.left);
         }
 
-        return null;
+        return count;
     }
 
     /**
@@ -192,8 +261,17 @@ public class DecisionTreeID3 {
             return null;
 
         TreeNode copiedNode = new TreeNode(node.id, node.height, node.attribute, node.classLabel, node.labelZeroCount, node.labelOneCount);
+        copiedNode.threshold = node.threshold;
+        copiedNode.classCounts = node.classCounts;
+        copiedNode.classNames = node.classNames;
+        copiedNode.branchValues = node.branchValues;
         copiedNode.left = copyTree(node.left);
         copiedNode.right = copyTree(node.right);
+        if (node.children != null) {
+            copiedNode.children = new TreeNode[node.children.length];
+            for (int i = 0; i < node.children.length; i++)
+                copiedNode.children[i] = copyTree(node.children[i]);
+        }
 
         return copiedNode;
     }
@@ -214,7 +292,24 @@ public class DecisionTreeID3 {
      * @return accuracy
      */
     public double calAccuracy(List<String[]> instanceList, Map<Integer, String> attrPosMap, TreeNode rootNode, int totalSize) {
-        return getCorrectCount(instanceList, attrPosMap, rootNode) / totalSize;
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.EVALUATE);
+        double accuracy = getCorrectCount(instanceList, attrPosMap, rootNode) / totalSize;
+        TrainingMetrics.end(timer, instanceList.size());
+        return accuracy;
+    }
+
+    /**
+     * calculate accuracy on a bit packed column data set
+     * @param dataSet data set
+     * @param rootNode root node
+     * @return accuracy
+     */
+    public double calAccuracy(BinaryDataSet dataSet, TreeNode rootNode) {
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.EVALUATE);
+        CompiledTree tree = CompiledTree.compile(rootNode, dataSet);
+        double accuracy = (double) tree.countCorrect(dataSet) / dataSet.getSize();
+        TrainingMetrics.end(timer, dataSet.getSize());
+        return accuracy;
     }
 
     /**
@@ -225,9 +320,11 @@ public class DecisionTreeID3 {
      * @return number of correct predictions
      */
     private double getCorrectCount(List<String[]> instanceList, Map<Integer, String> attrPosMap, TreeNode rootNode) {
+        CompiledTree tree = CompiledTree.compile(rootNode, attrPosMap);
         double correctCount = 0.0;
         for (String[] strings : instanceList) {
-            if (checkPrediction(strings, rootNode, attrPosMap))
+            int label = strings[strings.length - 1].equals("0") ? 0 : 1;
+            if (tree.predict(strings) == label)
                 correctCount++;
         }
 
@@ -235,329 +332,121 @@ public class DecisionTreeID3 {
     }
 
     /**
-     * check whether the decision tree model predict the correct class label
-     * @param instance instance
-     * @param node node
-     * @param attrPosMap attribute position --> name map
-     * @return true if prediction is equal to class label, otherwise return false
-     */
-    private boolean checkPrediction(String[] instance, TreeNode node, Map<Integer, String> attrPosMap) {
-        if (node.classLabel != null)
-            return instance[instance.length - 1].equals(node.classLabel);
-        else {
-            // TODO It is not efficient to find the attribute position in the data set
-            int pos = getPosFromAttrVal(attrPosMap, node.attribute);
-            if (pos == -1)
-                return false;
-            else {
-                if (instance[pos].equals("0"))
-                    return checkPrediction(instance, node.left, attrPosMap);
-                else
-                    return checkPrediction(instance, node.right, attrPosMap);
-            }
-        }
-    }
-
-    /**
-     * find the position of an attribute in the file
-     * @param attrPosMap attribute position and name map
-     * @param attr attribute
-     * @return the position
-     */
-    private int getPosFromAttrVal(Map<Integer, String> attrPosMap, String attr) {
-        for (Map.Entry<Integer, String> entry : attrPosMap.entrySet()) {
-            if (attr.equals(entry.getValue()))
-                return entry.getKey();
-        }
-
-        return -1;
-    }
-
-    /**
-     * private method: print tree
-     * @param node node
+     * private method: print tree in pre-order with an explicit stack, so trees of any depth can be printed.
+     * Every node but the root is printed after the branch of its parent leading to it
+     * @param root root node
      */
-    private void printTree(TreeNode node) {
-        if (node == null)
+    private void printTree(TreeNode root) {
+        if (root == null)
             return;
 
-        if (node.classLabel != null) {
-            System.out.println(node.classLabel);
-        } else {
-            System.out.println();
-            if (node.left != null) {
-                for (int i = 0; i < node.height; i++)
+        Deque<TreeNode> nodes = new ArrayDeque<>();
+        Deque<TreeNode> parents = new ArrayDeque<>(); // the root is its own parent
+        Deque<Integer> branches = new ArrayDeque<>(); // 0 left, 1 right, 2 + i child i, -1 for the root
+        nodes.push(root);
+        parents.push(root);
+        branches.push(-1);
+        while (!nodes.isEmpty()) {
+            TreeNode node = nodes.pop();
+            TreeNode parent = parents.pop();
+            int branch = branches.pop();
+            if (branch != -1) {
+                for (int j = 0; j < parent.height; j++)
                     System.out.print("| ");
-                System.out.print(node.attribute + "=0:");
-                printTree(node.left);
-            }
-            if (node.right != null) {
-                for (int i = 0; i < node.height; i++)
-                    System.out.print("| ");
-                System.out.print(node.attribute + "=1:");
-                printTree(node.right);
+                if (branch >= 2)
+                    System.out.print(parent.attribute + "=" + parent.branchValues[branch - 2] + ":");
+                else if (Double.isNaN(parent.threshold))
+                    System.out.print(parent.attribute + "=" + branch + ":");
+                else
+                    System.out.print(parent.attribute + (branch == 0 ? "<=" : ">") + parent.threshold + ":");
             }
-        }
-    }
 
-    /**
-     * private method to construct a tree, need to test, especially when to stop building the tree
-     * @param attrMap attributes map
-     * @param labels class labels
-     * @param height the height of a node
-     * @return constructed node
-     */
-    private TreeNode constructTree(Map<String, List<String>> attrMap,
-                                   List<String> labels, int height) {
-        if (labels.size() == 0 || attrMap.size() == 0)
-            return null;
-
-        double entropyParent = calParentEntropy(labels);
-        int[] labelZeroOne = calZeroOneLabels(labels);
-        if (entropyParent == 0.0) {
-            leafNodeCount++;
-            return new TreeNode(nodeId++, height, null, getClassLabel(labelZeroOne), labelZeroOne[0], labelZeroOne[1]);
-        } else {
-            String splitAttr = getSplitAttr(attrMap, labels, entropyParent);
-            if (splitAttr.isEmpty()) {
-                leafNodeCount++;
-                return new TreeNode(nodeId++, height, null, getClassLabel(labelZeroOne), labelZeroOne[0], labelZeroOne[1]);
-            } else {
-                TreeNode node = new TreeNode(nodeId++, height, splitAttr, null, labelZeroOne[0], labelZeroOne[1]);
-                List<List<Integer>> leftRightIndexList = getChildLevelDataIndexList(attrMap, splitAttr);
-                List<Integer> leftChildIndex = leftRightIndexList.get(0);
-                List<Integer> rightChildIndex = leftRightIndexList.get(1);
-                attrMap.remove(splitAttr); // remove selected split attribute
-                node.left = constructTree(purifyMap(attrMap, leftChildIndex), purifyLabels(leftChildIndex, labels), height + 1);
-                node.right = constructTree(purifyMap(attrMap, rightChildIndex), purifyLabels(rightChildIndex, labels), height + 1);
-                return node;
+            if (node.classLabel != null) {
+                System.out.println(node.classLabel);
+                continue;
             }
-        }
-    }
-
-    /**
-     * get split attribute
-     * @param map attribute map
-     * @param labels class labels
-     * @param entropyParent entropy of current data set
-     * @return split attribute
-     */
-    private String getSplitAttr(Map<String, List<String>> map, List<String> labels, double entropyParent) {
-        String splitAttr = "";
-        Set<String> keySet = map.keySet();
-        double infoGainMax = 0.0;
-        for (String key : keySet) {
-            List<String> attrValList = map.get(key);
-            double entropyChild = calEntropy(attrValList, labels);
-            double infoGain = entropyParent - entropyChild; // there maybe several attributes whose information gain are the same, just pick one attribute as the split attribute
-            if (infoGain > infoGainMax) {
-                infoGainMax = infoGain;
-                splitAttr = key;
+            System.out.println();
+            // children are pushed in reverse order so that they are printed in order
+            if (node.children != null) {
+                for (int i = node.children.length - 1; i >= 0; i--) {
+                    if (node.children[i] != null) {
+                        nodes.push(node.children[i]);
+                        parents.push(node);
+                        branches.push(2 + i);
+                    }
+                }
+            } else {
+                if (node.right != null) {
+                    nodes.push(node.right);
+                    parents.push(node);
+                    branches.push(1);
+                }
+                if (node.left != null) {
+                    nodes.push(node.left);
+                    parents.push(node);
+                    branches.push(0);
+                }
             }
         }
-
-        return splitAttr;
     }
 
     /**
      * get class label sign
-     * @param labelZeroOne class label array, labelZeroOne[0] stores the number of class 0, labelZeroOne[1] stores the number of class 1
+     * @param labelZeroCount the number of class 0
+     * @param labelOneCount the number of class 1
      * @return "0" if the number of label 0 is greater than or equal to the number of label 1, otherwise return "1"
      */
-    private String getClassLabel(int[] labelZeroOne) {
-        if (labelZeroOne[0] >= labelZeroOne[1])
+    static String getClassLabel(int labelZeroCount, int labelOneCount) {
+        if (labelZeroCount >= labelOneCount)
             return "0";
         else
             return "1";
     }
 
     /**
-     * split the attribute value into two groups: 0 and 1
-     * @param map map
-     * @param splitAttr split attributes
-     * @return index lists: left index list contains all 0, right index list contains all 1
-     */
-    private List<List<Integer>> getChildLevelDataIndexList(Map<String, List<String>> map,
-                                                    String splitAttr) {
-        List<List<Integer>> leftRightIndexList = new ArrayList<>(); // store left and right index list
-        List<String> originalList = map.get(splitAttr); // original list, waiting to be split
-        List<Integer> leftIndex = new ArrayList<>();
-        List<Integer> rightIndex = new ArrayList<>();
-        for (int i = 0; i < originalList.size(); i++) {
-            if (originalList.get(i).equals("0"))
-                leftIndex.add(i);
-            else
-                rightIndex.add(i);
-        }
-
-        leftRightIndexList.add(leftIndex);
-        leftRightIndexList.add(rightIndex);
-
-        return leftRightIndexList;
-
-    }
-
-    /**
-     * eliminate attribute and its values according to previously split attribute
-     * @param map map
-     * @param listIndex child level needed index list
-     * @return new map
-     */
-    private Map<String, List<String>> purifyMap(Map<String, List<String>> map, List<Integer> listIndex) {
-        Map<String, List<String>> newMap = new HashMap<>();
-
-        Set<String> keySet = map.keySet();
-        for (String key : keySet) {
-            List<String> originList = map.get(key);
-            List<String> newList = new ArrayList<>();
-            for (Integer val : listIndex)
-                newList.add(originList.get(val));
-
-            newMap.put(key, newList);
-        }
-
-        return newMap;
-    }
-
-    /**
-     * get the child level class label's
-     * @param listIndex child level needed index list
-     * @param labels parent level class labels
-     * @return child level class labels
-     */
-    private List<String> purifyLabels(List<Integer> listIndex, List<String> labels) {
-        List<String> newLabelsList = new ArrayList<>();
-        for (Integer val : listIndex)
-            newLabelsList.add(labels.get(val));
-
-        return newLabelsList;
-    }
-
-
-    /**
-     * calculate the initial entropy of all data
-     * @param labels label class list
-     * @return entropy of all data
-     */
-    private double calParentEntropy(List<String> labels) {
-        double length = labels.size();
-        if (length == 0.0)
-            return 0.0;
-
-        double countZero = 0.0;
-        for (String value : labels) {
-            if (value.equals("0"))
-                countZero++;
-        }
-
-        double countOne = length - countZero;
-        double zeroP = countZero / length;
-        double oneP = countOne / length;
-        double logZero = log2(zeroP);
-        double logOne = log2(oneP);
-        double v1 = zeroP * logZero;
-        double v2 = oneP * logOne;
-        double result = -v1 - v2;
-
-        return result;
-    }
-
-    /**
-     * calculate the entropy if we choose a specific attribute to split
-     * @param attributes attribute values
-     * @param labels label class list
-     * @return entropy after splitting with a specific attribute
+     * get the class label a node predicts when it is used as a leaf node
+     * @param node node
+     * @return class label of a leaf node, majority class label of an internal node
      */
-    private double calEntropy(List<String> attributes, List<String> labels) {
-        if (attributes.size() == 0)
-            return 0.0;
-
-        double countZero = 0.0, countZeroZero = 0.0, countZeroOne = 0.0;
-        double countOne = 0.0, countOneZero = 0.0, countOneOne = 0.0;
-        double length = attributes.size();
-        for (int i = 0; i < length; i++) {
-            if (attributes.get(i).equals("0")) {
-                countZero++;
-                if (labels.get(i).equals("0"))
-                    countZeroZero++;
-                else
-                    countZeroOne++;
-            } else {
-                countOne++;
-                if (labels.get(i).equals("0"))
-                    countOneZero++;
-                else
-                    countOneOne++;
-            }
-        }
-
-        // calculate possibilities
-        // TODO check whether the following values are zero or not
-        double zeroP = countZero / length;
-        double zeroZeroP, zeroOneP;
-        if (countZero == 0.0) {
-            zeroZeroP = 0.0;
-            zeroOneP = 0.0;
-        } else {
-            zeroZeroP = countZeroZero / countZero;
-            zeroOneP = countZeroOne / countZero;
-        }
-
-        double oneP = countOne / length;
-        double oneZeroP, oneOneP;
-        if (countOne == 0.0) {
-            oneZeroP = 0.0;
-            oneOneP = 0.0;
-        } else {
-            oneZeroP = countOneZero / countOne;
-            oneOneP = countOneOne / countOne;
-        }
-
+    static String majorityLabel(TreeNode node) {
+        if (node.classLabel != null)
+            return node.classLabel;
+        if (node.classCounts == null)
+            return getClassLabel(node.labelZeroCount, node.labelOneCount);
 
-        // calculate entropy
-        return zeroP * (-zeroZeroP * log2(zeroZeroP) - zeroOneP * log2(zeroOneP))
-                + oneP * (-oneZeroP * log2(oneZeroP) - oneOneP * log2(oneOneP));
+        return node.classNames[majorityClass(node.classCounts)];
     }
 
     /**
-     * calculate how many zero and one labels in the class label array
-     * @param labels class label array
-     * @return int[0] = size of zero class, int[1] = size of one class
+     * get the most frequent class of a count vector, ties go to the smallest class code like in getClassLabel
+     * @param classCounts instances per class code
+     * @return class code
      */
-    private int[] calZeroOneLabels(List<String> labels) {
-        int[] result = new int[2];
-        int countZero = 0;
-        for (String val : labels) {
-            if (val.equals("0"))
-                countZero++;
+    static int majorityClass(int[] classCounts) {
+        int best = 0;
+        for (int code = 1; code < classCounts.length; code++) {
+            if (classCounts[code] > classCounts[best])
+                best = code;
         }
 
-        result[0] = countZero;
-        result[1] = labels.size() - countZero;
-        return result;
-    }
-
-    /**
-     * calculate log, base is 2
-     * @param a input value
-     * @return log value
-     */
-    private double log2(double a) {
-        if (a == 0.0) // if a == 0.0, log2(a) = 0.0
-            return 0.0;
-
-        return Math.log(a) / Math.log(2);
+        return best;
     }
 
-    private class TreeNode {
+    static class TreeNode {
         int id;
         int height; // store the height of a node
         String attribute;
+        double threshold = Double.NaN; // numeric split: value <= threshold goes left, NaN for a binary attribute
         int labelZeroCount; // store how many class zero at a node
         int labelOneCount; // store how many class one at a node
+        int[] classCounts; // instances per class code of a multi-class tree, null for a binary tree
+        String[] classNames; // class labels by class code of a multi-class tree, shared by all nodes
         String classLabel;
         TreeNode left; // means attribute = 0
         TreeNode right; // means attribute = 1
+        TreeNode[] children; // multi-way split on a categorical attribute: child by value code, null if no
+                             // training instance has the value, null array for a binary or numeric split
+        String[] branchValues; // attribute value by value code of a multi-way split
 
         TreeNode(int id, int height, String attribute, String classLabel, int labelZeroCount, int labelOneCount) {
             this.id = id;
@@ -579,80 +468,110 @@ public class DecisionTreeID3 {
         String testDsPath = sc.nextLine();
         System.out.println("Please input the prune factor(less than 1.0): ");
         double pruneFactor = Double.valueOf(sc.nextLine());
+        System.out.println("Please input the pruning method, random or rep for reduced error pruning (default random): ");
+        String pruneMethod = sc.hasNextLine() ? sc.nextLine().trim() : "";
 
         DecisionTreeID3 dtID3 = new DecisionTreeID3(trainDsPath,
                 validationDsPath,
                 testDsPath, pruneFactor);
-        // process data
-        DataProcessUtil dpTrain = new DataProcessUtil(dtID3.getTrainDsPath());
-        dpTrain.processData();
-        DataProcessUtil dpValidation = new DataProcessUtil(dtID3.getValidationDsPath());
-        dpValidation.processData();
-        DataProcessUtil dpTest = new DataProcessUtil(dtID3.getTestDsPath());
-        dpTest.processData();
+        // -Dthreads=<n> overrides the number of threads constructing the tree
+        dtID3.setParallelism(Integer.getInteger("threads", Runtime.getRuntime().availableProcessors()));
+        // -DverifyBuild=true checks that the tree is identical to the sequential depth first build
+        dtID3.setVerifyBuild(Boolean.getBoolean("verifyBuild"));
+        // -Dbuilder=level constructs the tree level by level, for very deep trees
+        dtID3.setLevelWise("level".equals(System.getProperty("builder")));
+        // data sets are loaded by the constructor
+        BinaryDataSet trainSet = dtID3.getTrainDataSet();
+        BinaryDataSet validationSet = dtID3.getValidationDataSet();
+        BinaryDataSet testSet = dtID3.getTestDataSet();
+        if (trainSet == null || validationSet == null || testSet == null)
+            return;
 
         // construct tree
-        dtID3.constructTree(dpTrain.getAttrMap(), dpTrain.getLabels());
+        dtID3.constructTree(trainSet);
         dtID3.printTree();
         System.out.println("Pre-Pruned Accuracy");
         System.out.println("---------------------------------------------------------------------");
-        System.out.println("Number of training instances = " + dpTrain.getLabels().size());
-        System.out.println("Number of training attributes = " + dpTrain.getAttrLabelMap().size());
+        System.out.println("Number of training instances = " + trainSet.getSize());
+        System.out.println("Number of training attributes = " + trainSet.getAttrCount());
         System.out.println("Total number of nodes in the tree = " + dtID3.nodeId);
         System.out.println("Total number of leaf nodes in the tree = " + dtID3.leafNodeCount);
         System.out.println("Accuracy of the model on the training data set = " +
-                dtID3.calAccuracy(dpTrain.getInstanceList(), dpTrain.getAttrLabelMap(), dtID3.root, dpTrain.getLabels().size()));
+                dtID3.calAccuracy(trainSet, dtID3.root));
         System.out.println();
-        System.out.println("Number of validation instances = " + dpValidation.getLabels().size());
-        System.out.println("Number of validation attributes = " + dpValidation.getAttrLabelMap().size());
+        System.out.println("Number of validation instances = " + validationSet.getSize());
+        System.out.println("Number of validation attributes = " + validationSet.getAttrCount());
         System.out.println("Accuracy of the model on the validation data set before pruning = " +
-                dtID3.calAccuracy(dpValidation.getInstanceList(), dpValidation.getAttrLabelMap(), dtID3.root, dpValidation.getLabels().size()));
+                dtID3.calAccuracy(validationSet, dtID3.root));
         System.out.println();
-        System.out.println("Number of testing instances = " + dpTest.getLabels().size());
-        System.out.println("Number of testing attributes = " + dpTest.getAttrLabelMap().size());
+        System.out.println("Number of testing instances = " + testSet.getSize());
+        System.out.println("Number of testing attributes = " + testSet.getAttrCount());
         System.out.println("Accuracy of the model on the testing data set before pruning = " +
-                dtID3.calAccuracy(dpTest.getInstanceList(), dpTest.getAttrLabelMap(), dtID3.root, dpTest.getLabels().size()));
+                dtID3.calAccuracy(testSet, dtID3.root));
 
         System.out.println();
 
-        double TrainAccuracy = dtID3.calAccuracy(dpValidation.getInstanceList(), dpValidation.getAttrLabelMap(), dtID3.root, dpValidation.getLabels().size());
-        TreeNode prunedTree = null;
+        double TrainAccuracy = dtID3.calAccuracy(validationSet, dtID3.root);
+        // pruned variants are scored as bitsets of pruned node ids laid over the compiled tree
+        CompiledTree compiledTree = CompiledTree.compile(dtID3.root, validationSet);
+        TreePruner pruner = dtID3.pruner;
+        int pruneNodeCount = (int) (dtID3.getPruneFactor() * dtID3.nodeId);
+        long[] pruned = pruner.newPrunedBits();
         double prunedAccuracy = 0;
-        System.out.println("Calculating an better pruned tree...");
-        int i = 0;
-        //At least improve 0.02 in accuracy.
-        while(prunedAccuracy <= TrainAccuracy + 0.02){
-
-            prunedTree = dtID3.pruneTree(dtID3.getPruneFactor());
-            prunedAccuracy = dtID3.calAccuracy(dpValidation.getInstanceList(), dpValidation.getAttrLabelMap(), prunedTree, dpValidation.getLabels().size());
-//            System.out.print("--old--"+TrainAccuracy+" ---new---"+prunedAccuracy);
-            i++;
-
-            if(prunedAccuracy > TrainAccuracy && i >= 10000){
-                break;
-            }
+        if (pruneMethod.equals("rep")) {
+            pruned = pruner.reducedErrorPrune(compiledTree, validationSet);
+            prunedAccuracy = (double) compiledTree.countCorrect(validationSet, pruned) / validationSet.getSize();
+            System.out.println("Reduced error pruning reaches the pruned tree with " + (prunedAccuracy - TrainAccuracy) + " accuracy improvement.");
+        } else {
+            System.out.println("Calculating an better pruned tree...");
+            // trials run on all cores, the search is reproducible with -Dseed=<seed>
+            long seed = Long.getLong("seed", System.nanoTime());
+            System.out.println("Random seed = " + seed);
+            PruneSearch search = new PruneSearch(pruner, compiledTree, validationSet, Runtime.getRuntime().availableProcessors());
+            //At least improve 0.02 in accuracy, give up after 10000 trials and keep the best one.
+            PruneSearch.Result result = search.search(pruneNodeCount, TrainAccuracy + 0.02, 10000, seed);
+            pruned = result.getPruned();
+            prunedAccuracy = result.getAccuracy();
+            System.out.println("After "+ result.getTrials() +" loops, reach the pruned tree with " + (prunedAccuracy - TrainAccuracy) + " accuracy improvement.");
         }
-        System.out.println("After "+ i +" loops, reach the pruned tree with " + (prunedAccuracy - TrainAccuracy) + " accuracy improvement.");
+        TreeNode prunedTree = pruner.materialize(pruned);
         dtID3.printTree(prunedTree);
+        // save the pruned tree with -Dmodel=<path>, it can be scored later by TreeModel without training
+        String modelPath = System.getProperty("model");
+        if (modelPath != null) {
+            try {
+                TreeModel.fromTree(prunedTree).save(modelPath);
+                System.out.println("Saved the pruned tree to " + modelPath);
+            } catch (IOException e) {
+                e.printStackTrace();
+            } catch (IllegalArgumentException e) {
+                System.out.println("Can not save the pruned tree: " + e.getMessage());
+            }
+        }
 
         System.out.println("Post-Pruned Accuracy");
         System.out.println("---------------------------------------------------------------------");
-        System.out.println("Number of training instances = " + dpTrain.getLabels().size());
-        System.out.println("Number of training attributes = " + dpTrain.getAttrLabelMap().size());
+        System.out.println("Number of training instances = " + trainSet.getSize());
+        System.out.println("Number of training attributes = " + trainSet.getAttrCount());
         int[] nodeCount = dtID3.countNodes(prunedTree);
         System.out.println("Total number of nodes in the tree = " + nodeCount[0]);
         System.out.println("Total number of leaf nodes in the tree = " + nodeCount[1]);
         System.out.println("Accuracy of the model on the training data set = " +
-                dtID3.calAccuracy(dpTrain.getInstanceList(), dpTrain.getAttrLabelMap(), prunedTree, dpTrain.getLabels().size()));
+                dtID3.calAccuracy(trainSet, prunedTree));
         System.out.println();
-        System.out.println("Number of validation instances = " + dpValidation.getLabels().size());
-        System.out.println("Number of validation attributes = " + dpValidation.getAttrLabelMap().size());
+        System.out.println("Number of validation instances = " + validationSet.getSize());
+        System.out.println("Number of validation attributes = " + validationSet.getAttrCount());
         System.out.println("Accuracy of the model on the validation data set after pruning = " +
-                dtID3.calAccuracy(dpValidation.getInstanceList(), dpValidation.getAttrLabelMap(), prunedTree, dpValidation.getLabels().size()));
+                dtID3.calAccuracy(validationSet, prunedTree));
         System.out.println();
-        System.out.println("Number of testing instances = " + dpTest.getLabels().size());
-        System.out.println("Number of testing attributes = " + dpTest.getAttrLabelMap().size());
+        System.out.println("Number of testing instances = " + testSet.getSize());
+        System.out.println("Number of testing attributes = " + testSet.getAttrCount());
         System.out.println("Accuracy of the model on the testing data set after pruning = " +
-                dtID3.calAccuracy(dpTest.getInstanceList(), dpTest.getAttrLabelMap(), prunedTree, dpTest.getLabels().size()));
+                dtID3.calAccuracy(testSet, prunedTree));
+        if (TrainingMetrics.ENABLED) {
+            System.out.println();
+            System.out.println("Training metrics (also available as JMX asg2:type=TrainingMetrics)");
+            System.out.println(TrainingMetrics.get().report());
+        }
     }
 }
@@ -0,0 +1,263 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: build a decision tree on numeric attributes. Every node keeps a histogram of (bucket, class
+ * label) counts per attribute, the best split "bucket <= b" of an attribute is found by one prefix sum over
+ * its buckets, so choosing a split costs O(buckets) per attribute instead of sorting the instances.
+ * Like TreeBuilder, the nodes share one array of instance positions which is partitioned in place. Only
+ * the histogram of the smaller child is counted from its instances, the histogram of the larger child is
+ * the parent histogram minus it, which is computed in the parent's arrays. The smaller child is built
+ * first, so its arrays are free again when the larger child is built; a pool slot is only taken per step
+ * into a smaller child, which at least halves the instances, so at most log2(instances) + 1 histograms
+ * are live whatever the depth of the tree. Node ids are assigned in pre-order after the tree is complete
+ */
+public class HistogramTreeBuilder {
+    private NumericDataSet dataSet;
+    private QuantileBinning binning;
+    private double[] nLogN; // nLogN[k] = k * log2(k)
+    private int[] binOffset; // position of the first bucket of every attribute in a histogram
+    private int histogramSize; // total number of buckets of all attributes
+    private int[] rows; // instance positions, node ranges are partitioned in place
+    // histograms of smaller children by the number of steps into a smaller child on the path from the root
+    private List<int[]> countPool = new ArrayList<>();
+    private List<int[]> countOnePool = new ArrayList<>();
+    private int nodeCount = 0;
+    private int leafCount = 0;
+    private long splitEvaluations = 0; // scored candidates, only counted with metrics
+    private long rowsScanned = 0; // instance visits of histogram filling, only counted with metrics
+
+    /**
+     * constructor
+     * @param dataSet training data set
+     */
+    public HistogramTreeBuilder(NumericDataSet dataSet) {
+        this.dataSet = dataSet;
+        this.binning = dataSet.getBinning();
+        this.nLogN = SplitScorer.createTable(dataSet.getSize());
+        binOffset = new int[dataSet.getAttrCount() + 1];
+        for (int attr = 0; attr < dataSet.getAttrCount(); attr++)
+            binOffset[attr + 1] = binOffset[attr] + binning.getBinCount(attr);
+        histogramSize = binOffset[dataSet.getAttrCount()];
+    }
+
+    /**
+     * build a tree using all instances of the data set
+     * @return root node, null if the data set is empty
+     */
+    public TreeNode build() {
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.BUILD);
+        splitEvaluations = 0;
+        rowsScanned = 0;
+        rows = new int[dataSet.getSize()];
+        for (int i = 0; i < rows.length; i++)
+            rows[i] = i;
+
+        TreeNode root = null;
+        if (rows.length > 0) {
+            int[] count = new int[histogramSize];
+            int[] countOne = new int[histogramSize];
+            fillHistogram(0, rows.length, count, countOne);
+            root = build(0, rows.length, 0, 0, count, countOne);
+        }
+        int[] counts = DecisionTreeID3.assignIds(root);
+        nodeCount = counts[0];
+        leafCount = counts[1];
+
+        rows = null;
+        countPool.clear();
+        countOnePool.clear();
+        TrainingMetrics.endBuild(timer, root, splitEvaluations, rowsScanned);
+        return root;
+    }
+
+    /**
+     * get the number of nodes of the last built tree
+     * @return number of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * get the number of leaf nodes of the last built tree
+     * @return number of leaf nodes
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * build the subtree of the instances rows[from, to), ids are assigned later
+     * @param from start position, inclusive
+     * @param to end position, exclusive
+     * @param height the height of the node
+     * @param steps number of steps into a smaller child from the root, the subtree uses the pool slots above
+     * @param count histogram of the node: instances per bucket, overwritten while building the children
+     * @param countOne histogram of the node: class one instances per bucket, overwritten as well
+     * @return constructed node
+     */
+    private TreeNode build(int from, int to, int height, int steps, int[] count, int[] countOne) {
+        int total = to - from;
+        int totalOne = 0;
+        if (dataSet.getAttrCount() > 0) {
+            for (int b = binOffset[0]; b < binOffset[1]; b++)
+                totalOne += countOne[b];
+        } else {
+            for (int i = from; i < to; i++)
+                totalOne += dataSet.getLabel(rows[i]);
+        }
+        int totalZero = total - totalOne;
+
+        int splitAttr = -1, splitBin = -1;
+        if (totalZero != 0 && totalOne != 0) {
+            // ties go to the first attribute and bucket
+            double gainMax = 1e-9 * total;
+            if (TrainingMetrics.ENABLED)
+                splitEvaluations += dataSet.getAttrCount();
+            for (int attr = 0; attr < dataSet.getAttrCount(); attr++) {
+                int leftCount = 0, leftOne = 0;
+                for (int b = binOffset[attr]; b < binOffset[attr + 1] - 1; b++) {
+                    leftCount += count[b];
+                    leftOne += countOne[b];
+                    if (count[b] == 0)
+                        continue; // same split as the previous bucket
+
+                    double gain = SplitScorer.binaryGain(nLogN, total, totalOne, total - leftCount,
+                            totalOne - leftOne);
+                    if (gain > gainMax) {
+                        gainMax = gain;
+                        splitAttr = attr;
+                        splitBin = b - binOffset[attr];
+                    }
+                }
+            }
+        }
+
+        if (splitAttr == -1)
+            return new TreeNode(-1, height, null, DecisionTreeID3.getClassLabel(totalZero, totalOne),
+                    totalZero, totalOne);
+
+        TreeNode node = new TreeNode(-1, height, dataSet.getAttrName(splitAttr), null, totalZero, totalOne);
+        node.threshold = binning.getUpperEdge(splitAttr, splitBin);
+        int mid = partition(from, to, splitAttr, splitBin);
+
+        // count the smaller child, the larger child is the parent minus the smaller child
+        boolean leftSmaller = mid - from <= to - mid;
+        while (countPool.size() <= steps) {
+            countPool.add(new int[histogramSize]);
+            countOnePool.add(new int[histogramSize]);
+        }
+        int[] smallCount = countPool.get(steps);
+        int[] smallOne = countOnePool.get(steps);
+        Arrays.fill(smallCount, 0);
+        Arrays.fill(smallOne, 0);
+        if (leftSmaller)
+            fillHistogram(from, mid, smallCount, smallOne);
+        else
+            fillHistogram(mid, to, smallCount, smallOne);
+        for (int b = 0; b < histogramSize; b++) {
+            count[b] -= smallCount[b];
+            countOne[b] -= smallOne[b];
+        }
+
+        // the smaller child first: the larger child's subtree takes slot steps again
+        if (leftSmaller) {
+            node.left = build(from, mid, height + 1, steps + 1, smallCount, smallOne);
+            node.right = build(mid, to, height + 1, steps, count, countOne);
+        } else {
+            node.right = build(mid, to, height + 1, steps + 1, smallCount, smallOne);
+            node.left = build(from, mid, height + 1, steps, count, countOne);
+        }
+
+        return node;
+    }
+
+    /**
+     * count the buckets and class labels of the instances rows[from, to)
+     * @param from start position, inclusive
+     * @param to end position, exclusive
+     * @param count receives instances per bucket
+     * @param countOne receives class one instances per bucket
+     */
+    private void fillHistogram(int from, int to, int[] count, int[] countOne) {
+        if (TrainingMetrics.ENABLED)
+            rowsScanned += (long) (to - from) * dataSet.getAttrCount();
+        for (int attr = 0; attr < dataSet.getAttrCount(); attr++) {
+            byte[] column = dataSet.getBinColumn(attr);
+            int offset = binOffset[attr];
+            for (int i = from; i < to; i++) {
+                int row = rows[i];
+                int b = offset + (column[row] & 0xFF);
+                count[b]++;
+                countOne[b] += dataSet.getLabel(row);
+            }
+        }
+    }
+
+    /**
+     * move the instances of rows[from, to) whose bucket is at most splitBin to the front
+     * @param from start position, inclusive
+     * @param to end position, exclusive
+     * @param splitAttr column position of split attribute
+     * @param splitBin last bucket of the left child
+     * @return position of the first instance of the right child
+     */
+    private int partition(int from, int to, int splitAttr, int splitBin) {
+        byte[] column = dataSet.getBinColumn(splitAttr);
+        int i = from, j = to - 1;
+        while (i <= j) {
+            if ((column[rows[i]] & 0xFF) <= splitBin) {
+                i++;
+            } else {
+                int tmp = rows[i];
+                rows[i] = rows[j];
+                rows[j--] = tmp;
+            }
+        }
+
+        return i;
+    }
+
+    /**
+     * train a tree on numeric csv files and report its accuracy
+     * @param args training, validation and test data set paths, optionally the number of buckets
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: HistogramTreeBuilder <training set> <validation set> <test set> [buckets]");
+            return;
+        }
+
+        int maxBins = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        try {
+            NumericDataSet trainSet = NumericDataSet.load(args[0], maxBins);
+            NumericDataSet validationSet = NumericDataSet.load(args[1], trainSet.getBinning());
+            NumericDataSet testSet = NumericDataSet.load(args[2], trainSet.getBinning());
+
+            long start = System.nanoTime();
+            HistogramTreeBuilder builder = new HistogramTreeBuilder(trainSet);
+            TreeNode root = builder.build();
+            System.out.println("Built a tree with " + builder.getNodeCount() + " nodes and " +
+                    builder.getLeafCount() + " leaf nodes in " + (System.nanoTime() - start) / 1000000 + " ms");
+
+            String[] names = {"training", "validation", "testing"};
+            NumericDataSet[] dataSets = {trainSet, validationSet, testSet};
+            for (int i = 0; i < dataSets.length; i++) {
+                CompiledTree tree = CompiledTree.compile(root, dataSets[i]);
+                System.out.println("Accuracy of the model on the " + names[i] + " data set = " +
+                        (double) tree.countCorrect(dataSets[i]) / dataSets[i].getSize());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: streaming decision tree (Hoeffding tree / VFDT) for unbounded input. Every leaf keeps the
+ * counts of (attribute value, class label) of the instances which reached it, the same contingency counts
+ * ID3 uses for the information gain. Every gracePeriod instances a leaf compares its two best attributes,
+ * and splits once the Hoeffding bound says the best one is better with probability 1 - delta, or when the
+ * two are too close to tell apart. Learning an instance costs O(depth + attributes) and memory is bounded
+ * by maxNodes. The tree can predict, or be turned into TreeNodes, between any two instances.
+ * A HoeffdingTree is not thread safe
+ */
+public class HoeffdingTree {
+    private static final double LN_2 = Math.log(2);
+    private String[] attrNames;
+    private double delta = 1e-7; // allowed probability of choosing a wrong split attribute
+    private double tieThreshold = 0.05; // split if the bound is below it even though the best attributes tie
+    private int gracePeriod = 200; // number of instances a leaf waits between split attempts
+    private int maxNodes = 1 << 16; // leaves stop splitting once the tree has this many nodes
+
+    // nodes, the root is node 0. Children are appended when a leaf splits
+    private int nodeCount = 0;
+    private int[] featureIndex; // column position of split attribute, -1 for a leaf node
+    private int[] left; // child for attribute value 0
+    private int[] right; // child for attribute value 1
+    private long[] labelZeroCount; // class zero instances which reached a node
+    private long[] labelOneCount; // class one instances which reached a node
+    private long[] seenAtLastCheck; // instances counted in the statistics of a leaf at its last split attempt
+    // counts of a leaf since it was created: [attr * 2 + value] counts all instances with the attribute value,
+    // [2 * attrCount + attr * 2 + value] counts the class one instances among them. null for internal nodes
+    private long[][] leafStats;
+
+    /**
+     * constructor
+     * @param attrNames attribute names, instances list their values in this order
+     */
+    public HoeffdingTree(String[] attrNames) {
+        this.attrNames = attrNames.clone();
+        int capacity = 16;
+        featureIndex = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        labelZeroCount = new long[capacity];
+        labelOneCount = new long[capacity];
+        seenAtLastCheck = new long[capacity];
+        leafStats = new long[capacity][];
+        addLeaf(0, 0);
+    }
+
+    /**
+     * set the allowed probability of choosing a wrong split attribute, 1e-7 by default
+     * @param delta probability
+     */
+    public void setDelta(double delta) {
+        this.delta = delta;
+    }
+
+    /**
+     * set the gain difference below which the two best attributes count as a tie, 0.05 by default
+     * @param tieThreshold threshold
+     */
+    public void setTieThreshold(double tieThreshold) {
+        this.tieThreshold = tieThreshold;
+    }
+
+    /**
+     * set the number of instances a leaf waits between split attempts, 200 by default
+     * @param gracePeriod number of instances
+     */
+    public void setGracePeriod(int gracePeriod) {
+        this.gracePeriod = Math.max(1, gracePeriod);
+    }
+
+    /**
+     * set the node limit, leaves stop splitting once the tree reaches it. 65536 by default
+     * @param maxNodes maximum number of nodes
+     */
+    public void setMaxNodes(int maxNodes) {
+        this.maxNodes = Math.max(1, maxNodes);
+    }
+
+    /**
+     * get the number of nodes
+     * @return number of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * get the attribute names
+     * @return attribute names
+     */
+    public String[] getAttrNames() {
+        return attrNames.clone();
+    }
+
+    /**
+     * learn one instance
+     * @param values attribute values, 0 or 1, in the order of the attribute names
+     * @param label class label, 0 or 1
+     */
+    public void learn(int[] values, int label) {
+        int node = 0;
+        while (featureIndex[node] >= 0) {
+            count(node, label);
+            node = values[featureIndex[node]] == 0 ? left[node] : right[node];
+        }
+        count(node, label);
+
+        long[] stats = leafStats[node];
+        int attrCount = attrNames.length;
+        for (int attr = 0; attr < attrCount; attr++) {
+            int cell = attr * 2 + (values[attr] == 0 ? 0 : 1);
+            stats[cell]++;
+            if (label == 1)
+                stats[2 * attrCount + cell]++;
+        }
+
+        if (attrCount == 0)
+            return;
+        long seen = stats[0] + stats[1];
+        if (seen - seenAtLastCheck[node] >= gracePeriod && nodeCount + 2 <= maxNodes) {
+            seenAtLastCheck[node] = seen;
+            trySplit(node);
+        }
+    }
+
+    /**
+     * learn one instance of a data set
+     * @param dataSet data set with the attributes of this tree in the same order
+     * @param row instance position
+     */
+    public void learn(BinaryDataSet dataSet, int row) {
+        int[] values = new int[attrNames.length];
+        for (int attr = 0; attr < values.length; attr++)
+            values[attr] = dataSet.getValue(attr, row);
+        learn(values, dataSet.getLabel(row));
+    }
+
+    /**
+     * predict the class label of an instance by the majority class label of its leaf node
+     * @param values attribute values, 0 or 1, in the order of the attribute names
+     * @return 0 or 1
+     */
+    public int predict(int[] values) {
+        int node = 0;
+        while (featureIndex[node] >= 0)
+            node = values[featureIndex[node]] == 0 ? left[node] : right[node];
+
+        return labelOneCount[node] > labelZeroCount[node] ? 1 : 0;
+    }
+
+    /**
+     * count an instance at a node
+     * @param node node
+     * @param label class label
+     */
+    private void count(int node, int label) {
+        if (label == 1)
+            labelOneCount[node]++;
+        else
+            labelZeroCount[node]++;
+    }
+
+    /**
+     * split a leaf node if the Hoeffding bound separates its best attribute from the runner-up
+     * @param node leaf node
+     */
+    private void trySplit(int node) {
+        // the class counts of a leaf include the instances counted by its parent, the statistics do not
+        long[] stats = leafStats[node];
+        int attrCount = attrNames.length;
+        long n = stats[0] + stats[1];
+        long one = stats[2 * attrCount] + stats[2 * attrCount + 1];
+        long zero = n - one;
+        if (zero == 0 || one == 0)
+            return;
+
+        double parent = nLogN(n) - nLogN(zero) - nLogN(one);
+        int bestAttr = -1;
+        double best = 0, second = 0;
+        for (int attr = 0; attr < attrCount; attr++) {
+            long valueZero = stats[attr * 2], valueOne = stats[attr * 2 + 1];
+            long zeroOne = stats[2 * attrCount + attr * 2], oneOne = stats[2 * attrCount + attr * 2 + 1];
+            double children = (nLogN(valueZero) - nLogN(valueZero - zeroOne) - nLogN(zeroOne))
+                    + (nLogN(valueOne) - nLogN(valueOne - oneOne) - nLogN(oneOne));
+            double gain = (parent - children) / n;
+            if (gain > best) {
+                second = best;
+                best = gain;
+                bestAttr = attr;
+            } else if (gain > second) {
+                second = gain;
+            }
+        }
+        if (bestAttr == -1 || best < 1e-9)
+            return;
+
+        // the range of the information gain of two classes is log2(2) = 1
+        double bound = Math.sqrt(Math.log(1 / delta) / (2.0 * n));
+        if (best - second > bound || bound < tieThreshold)
+            split(node, bestAttr);
+    }
+
+    /**
+     * turn a leaf node into an internal node, the children start with the class counts of their side
+     * @param node leaf node
+     * @param attr column position of split attribute
+     */
+    private void split(int node, int attr) {
+        long[] stats = leafStats[node];
+        int attrCount = attrNames.length;
+        long valueZeroOne = stats[2 * attrCount + attr * 2], valueOneOne = stats[2 * attrCount + attr * 2 + 1];
+        long valueZeroZero = stats[attr * 2] - valueZeroOne, valueOneZero = stats[attr * 2 + 1] - valueOneOne;
+
+        // addLeaf may replace the node arrays, so they are written after both children exist
+        int leftChild = addLeaf(valueZeroZero, valueZeroOne);
+        int rightChild = addLeaf(valueOneZero, valueOneOne);
+        featureIndex[node] = attr;
+        left[node] = leftChild;
+        right[node] = rightChild;
+        leafStats[node] = null;
+    }
+
+    /**
+     * append a leaf node
+     * @param zero class zero count the leaf starts with
+     * @param one class one count the leaf starts with
+     * @return node
+     */
+    private int addLeaf(long zero, long one) {
+        if (nodeCount == featureIndex.length) {
+            int capacity = nodeCount * 2;
+            featureIndex = Arrays.copyOf(featureIndex, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            labelZeroCount = Arrays.copyOf(labelZeroCount, capacity);
+            labelOneCount = Arrays.copyOf(labelOneCount, capacity);
+            seenAtLastCheck = Arrays.copyOf(seenAtLastCheck, capacity);
+            leafStats = Arrays.copyOf(leafStats, capacity);
+        }
+
+        int node = nodeCount++;
+        featureIndex[node] = -1;
+        labelZeroCount[node] = zero;
+        labelOneCount[node] = one;
+        seenAtLastCheck[node] = 0;
+        leafStats[node] = new long[4 * attrNames.length];
+        return node;
+    }
+
+    /**
+     * calculate k * log2(k)
+     * @param k count
+     * @return k * log2(k), 0 if k is 0
+     */
+    private static double nLogN(long k) {
+        return k == 0 ? 0 : k * Math.log(k) / LN_2;
+    }
+
+    /**
+     * create the tree nodes of the current state, node ids are assigned in pre-order. Counts larger than
+     * Integer.MAX_VALUE are capped
+     * @return root node
+     */
+    public TreeNode toTree() {
+        int[] nextId = new int[1];
+        return toTree(0, 0, nextId);
+    }
+
+    /**
+     * create the subtree of a node
+     * @param node node
+     * @param height the height of the node
+     * @param nextId next pre-order id
+     * @return created node
+     */
+    private TreeNode toTree(int node, int height, int[] nextId) {
+        int zero = (int) Math.min(labelZeroCount[node], Integer.MAX_VALUE);
+        int one = (int) Math.min(labelOneCount[node], Integer.MAX_VALUE);
+        if (featureIndex[node] < 0)
+            return new TreeNode(nextId[0]++, height, null, DecisionTreeID3.getClassLabel(zero, one), zero, one);
+
+        TreeNode treeNode = new TreeNode(nextId[0]++, height, attrNames[featureIndex[node]], null, zero, one);
+        treeNode.left = toTree(left[node], height + 1, nextId);
+        treeNode.right = toTree(right[node], height + 1, nextId);
+        return treeNode;
+    }
+
+    /**
+     * learn a csv file line by line without loading it, and report the accuracy of predicting every instance
+     * before learning it
+     * @param args csv file path, optionally a test data set path
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: HoeffdingTree <training stream csv> [test set]");
+            return;
+        }
+
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]),
+                Charset.forName("UTF-8")))) {
+            String line = br.readLine();
+            if (line == null)
+                return;
+
+            String[] header = line.split(",");
+            HoeffdingTree tree = new HoeffdingTree(Arrays.copyOf(header, header.length - 1)); // 'Class' is excluded
+            int[] values = new int[header.length - 1];
+            long seen = 0, correct = 0;
+            while ((line = br.readLine()) != null) {
+                if (line.isEmpty())
+                    continue;
+
+                String[] fields = line.split(",");
+                if (fields.length != header.length)
+                    throw new IOException("instance " + (seen + 1) + " has " + fields.length + " fields");
+                for (int i = 0; i < values.length; i++)
+                    values[i] = fields[i].equals("0") ? 0 : 1;
+                int label = fields[values.length].equals("0") ? 0 : 1;
+
+                if (tree.predict(values) == label)
+                    correct++;
+                tree.learn(values, label);
+                seen++;
+                if (seen % 100000 == 0)
+                    System.out.println(seen + " instances, " + tree.getNodeCount() + " nodes, accuracy = " +
+                            (double) correct / seen);
+            }
+            System.out.println("Learned " + seen + " instances, " + tree.getNodeCount() + " nodes");
+            System.out.println("Accuracy of predicting every instance before learning it = " + (double) correct / seen);
+
+            if (args.length > 1) {
+                BinaryDataSet testSet = new ParallelDataLoader().load(args[1]);
+                CompiledTree compiledTree = CompiledTree.compile(tree.toTree(), testSet);
+                System.out.println("Accuracy of the model on the testing data set = " +
+                        (double) compiledTree.countCorrect(testSet) / testSet.getSize());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package asg2;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: JDK Flight Recorder events of TrainingMetrics. This is the only class referring to jdk.jfr,
+ * it is loaded only if the JVM has Flight Recorder, so the other classes still run on older JVMs.
+ * Events are passed around as Object for the same reason
+ */
+final class JfrEvents {
+    private JfrEvents() {
+    }
+
+    @Name("asg2.Phase")
+    @Label("Training Phase")
+    @Category("Decision Tree")
+    @Description("One load, build, prune or evaluate phase")
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Rows Scanned")
+        long rowsScanned;
+
+        @Label("Allocated Bytes")
+        long allocatedBytes;
+    }
+
+    @Name("asg2.TreeBuild")
+    @Label("Tree Build")
+    @Category("Decision Tree")
+    @Description("Shape of a built tree and the split search work")
+    static class TreeBuildEvent extends Event {
+        @Label("Nodes")
+        long nodes;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Nodes Per Depth")
+        String nodesPerDepth;
+
+        @Label("Split Evaluations")
+        long splitEvaluations;
+    }
+
+    @Name("asg2.Prediction")
+    @Label("Prediction")
+    @Category("Decision Tree")
+    @Description("Latency of one prediction, disabled unless enabled in the recording settings")
+    @Enabled(false)
+    static class PredictionEvent extends Event {
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+    }
+
+    /**
+     * start a phase event
+     * @return event, to be passed to endPhase
+     */
+    static Object beginPhase() {
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * commit a phase event
+     * @param event event returned by beginPhase
+     * @param phase phase name
+     * @param rowsScanned instances scanned by the phase
+     * @param allocatedBytes bytes allocated during the phase, -1 if unknown
+     */
+    static void endPhase(Object event, String phase, long rowsScanned, long allocatedBytes) {
+        PhaseEvent phaseEvent = (PhaseEvent) event;
+        phaseEvent.end();
+        if (phaseEvent.shouldCommit()) {
+            phaseEvent.phase = phase;
+            phaseEvent.rowsScanned = rowsScanned;
+            phaseEvent.allocatedBytes = allocatedBytes;
+            phaseEvent.commit();
+        }
+    }
+
+    /**
+     * commit a tree build event
+     * @param nodesPerDepth nodes by depth
+     * @param splitEvaluations split candidates scored by the build
+     */
+    static void treeBuilt(long[] nodesPerDepth, long splitEvaluations) {
+        TreeBuildEvent event = new TreeBuildEvent();
+        if (!event.shouldCommit())
+            return;
+
+        long nodes = 0;
+        StringBuilder sb = new StringBuilder();
+        for (int depth = 0; depth < nodesPerDepth.length; depth++) {
+            nodes += nodesPerDepth[depth];
+            if (depth > 0)
+                sb.append(',');
+            sb.append(nodesPerDepth[depth]);
+        }
+        event.nodes = nodes;
+        event.depth = nodesPerDepth.length - 1;
+        event.nodesPerDepth = sb.toString();
+        event.splitEvaluations = splitEvaluations;
+        event.commit();
+    }
+
+    /**
+     * commit a prediction event
+     * @param latencyNanos latency in nanoseconds
+     */
+    static void prediction(long latencyNanos) {
+        PredictionEvent event = new PredictionEvent();
+        if (event.shouldCommit()) {
+            event.latency = latencyNanos;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package asg2;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: lock free latency histogram with power of two buckets, bucket i counts latencies in
+ * [2^i, 2^(i+1)) nanoseconds. Percentiles are reported as the upper bound of their bucket, so they are
+ * at most a factor 2 above the real latency
+ */
+class LatencyHistogram {
+    private static final int BUCKETS = 64;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * record one latency
+     * @param nanos latency in nanoseconds
+     */
+    void record(long nanos) {
+        counts.incrementAndGet(nanos <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    /**
+     * get the counts by bucket
+     * @return copy of the counts
+     */
+    long[] snapshot() {
+        long[] histogram = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            histogram[i] = counts.get(i);
+
+        return histogram;
+    }
+
+    /**
+     * get the number of recorded latencies
+     * @return count
+     */
+    long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            count += counts.get(i);
+
+        return count;
+    }
+
+    /**
+     * find a latency percentile
+     * @param fraction percentile between 0 and 1
+     * @return upper bound of the percentile's bucket in microseconds, 0 without latencies
+     */
+    double percentileMicros(double fraction) {
+        long[] histogram = snapshot();
+        long total = 0;
+        for (long count : histogram)
+            total += count;
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * total)), seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank)
+                return Math.pow(2, i + 1) / 1000;
+        }
+        return Math.pow(2, histogram.length) / 1000;
+    }
+
+    /**
+     * clear all buckets
+     */
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+    }
+}
@@ -0,0 +1,291 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: build an ID3 decision tree level by level instead of depth first. Every instance is
+ * assigned to a node of the current level (the frontier) in a row --> node array, and the counts of all
+ * frontier nodes and all attributes are filled in one sequential pass over the columns. Then the splits of
+ * all frontier nodes are chosen at once and the instances move to the children, which form the next level.
+ * The number of passes over the data is bounded by the depth of the tree and there is no recursion, so a
+ * deep tree can not overflow the stack. Gains come from SplitScorer.binaryGain and classGain and ids from
+ * DecisionTreeID3.assignIds, so the tree matches TreeBuilder
+ */
+class LevelWiseTreeBuilder {
+    private static final int MAX_TABLE_SIZE = 1 << 24; // counts per pass, larger frontiers take several passes
+    private BinaryDataSet dataSet;
+    private double[] nLogN;
+    private int attrCount;
+    private int classCount; // number of class codes of a multi-class data set, 0 for two classes
+    private String[] classNames; // class labels by class code, shared by the nodes of a multi-class tree
+    private int[] nodeOf; // frontier position of the node every instance reaches, -1 once it reached a leaf
+    private int nodeCount = 0;
+    private int leafCount = 0;
+    private int passCount = 0;
+    private long splitEvaluations = 0; // scored candidates, only counted with metrics
+
+    /**
+     * constructor
+     * @param dataSet training data set
+     */
+    LevelWiseTreeBuilder(BinaryDataSet dataSet) {
+        this.dataSet = dataSet;
+        this.nLogN = SplitScorer.createTable(dataSet.getSize());
+        this.attrCount = dataSet.getAttrCount();
+        if (dataSet.isMultiClass()) {
+            classCount = dataSet.getClassCount();
+            classNames = new String[classCount];
+            for (int code = 0; code < classCount; code++)
+                classNames[code] = dataSet.getClassName(code);
+        }
+    }
+
+    /**
+     * build a tree using all instances and all attributes of the data set
+     * @return root node, null if the data set is empty
+     */
+    TreeNode build() {
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.BUILD);
+        int size = dataSet.getSize();
+        nodeCount = 0;
+        leafCount = 0;
+        passCount = 0;
+        splitEvaluations = 0;
+        if (size == 0) {
+            TrainingMetrics.endBuild(timer, null, 0, 0);
+            return null;
+        }
+
+        nodeOf = new int[size]; // every instance starts at the root
+        List<TreeNode> frontier = new ArrayList<>();
+        List<boolean[]> frontierUsed = new ArrayList<>(); // attributes chosen by the ancestors of a frontier node
+        TreeNode root = new TreeNode(-1, 0, null, null, 0, 0);
+        frontier.add(root);
+        frontierUsed.add(new boolean[attrCount]);
+
+        while (!frontier.isEmpty()) {
+            int[] splitAttrs = new int[frontier.size()];
+            int cells = attrCount * Math.max(1, classCount);
+            int batch = Math.max(1, MAX_TABLE_SIZE / Math.max(1, cells));
+            for (int from = 0; from < frontier.size(); from += batch)
+                splitLevel(frontier, frontierUsed, from, Math.min(frontier.size(), from + batch), splitAttrs);
+
+            // the children of the split nodes are the next level, left before right
+            List<TreeNode> next = new ArrayList<>();
+            List<boolean[]> nextUsed = new ArrayList<>();
+            int[] childOf = new int[frontier.size() * 2];
+            for (int i = 0; i < frontier.size(); i++) {
+                if (splitAttrs[i] == -1)
+                    continue;
+
+                TreeNode node = frontier.get(i);
+                boolean[] used = frontierUsed.get(i);
+                used[splitAttrs[i]] = true;
+                node.left = new TreeNode(-1, node.height + 1, null, null, 0, 0);
+                node.right = new TreeNode(-1, node.height + 1, null, null, 0, 0);
+                childOf[i * 2] = next.size();
+                next.add(node.left);
+                nextUsed.add(used.clone());
+                childOf[i * 2 + 1] = next.size();
+                next.add(node.right);
+                nextUsed.add(used);
+            }
+
+            if (!next.isEmpty())
+                advance(splitAttrs, childOf);
+            frontier = next;
+            frontierUsed = nextUsed;
+        }
+
+        nodeOf = null;
+        int[] counts = DecisionTreeID3.assignIds(root);
+        nodeCount = counts[0];
+        leafCount = counts[1];
+        // every pass reads the label column and all attribute columns once
+        TrainingMetrics.endBuild(timer, root, splitEvaluations, (long) passCount * size * (attrCount + 1));
+        return root;
+    }
+
+    /**
+     * get the number of nodes of the last built tree
+     * @return number of nodes
+     */
+    int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * get the number of leaf nodes of the last built tree
+     * @return number of leaf nodes
+     */
+    int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * get the number of counting passes over the data set of the last build, one per level unless a level
+     * has more nodes than fit into one count table
+     * @return number of passes
+     */
+    int getPassCount() {
+        return passCount;
+    }
+
+    /**
+     * count the frontier nodes [from, to) in one pass over the columns, fill in their counts and labels and
+     * choose their split attributes
+     * @param frontier nodes of the current level
+     * @param frontierUsed attributes chosen by the ancestors of every frontier node
+     * @param from first frontier position, inclusive
+     * @param to last frontier position, exclusive
+     * @param splitAttrs receives the split attribute of every frontier node, -1 for a leaf node
+     */
+    private void splitLevel(List<TreeNode> frontier, List<boolean[]> frontierUsed, int from, int to,
+                            int[] splitAttrs) {
+        passCount++;
+        int slots = to - from;
+        int size = dataSet.getSize();
+        long[] labels = dataSet.getLabelColumn();
+        int[] count = new int[slots];
+        int[] countOne = new int[slots];
+        int[] classCounts = classCount == 0 ? null : new int[slots * classCount];
+        for (int row = 0; row < size; row++) {
+            int slot = nodeOf[row] - from;
+            if (slot < 0 || slot >= slots)
+                continue;
+
+            count[slot]++;
+            countOne[slot] += (int) (labels[row >>> 6] >>> row) & 1;
+            if (classCounts != null)
+                classCounts[slot * classCount + dataSet.getClassCode(row)]++;
+        }
+
+        // counts of the instances whose attribute value is 1, indexed by attribute first so one column
+        // writes into one contiguous block
+        int[] valueOne = classCount == 0 ? new int[attrCount * slots] : null;
+        int[] valueOneOne = classCount == 0 ? new int[attrCount * slots] : null;
+        int[] valueOneClass = classCount == 0 ? null : new int[attrCount * slots * classCount];
+        for (int attr = 0; attr < attrCount; attr++) {
+            long[] column = dataSet.getColumn(attr);
+            int base = attr * slots;
+            for (int w = 0; w < column.length; w++) {
+                long bits = column[w];
+                while (bits != 0) {
+                    int row = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    int slot = nodeOf[row] - from;
+                    if (slot < 0 || slot >= slots)
+                        continue;
+
+                    if (valueOneClass != null) {
+                        valueOneClass[(base + slot) * classCount + dataSet.getClassCode(row)]++;
+                    } else {
+                        valueOne[base + slot]++;
+                        valueOneOne[base + slot] += (int) (labels[w] >>> row) & 1;
+                    }
+                }
+            }
+        }
+
+        for (int slot = 0; slot < slots; slot++) {
+            int[] nodeClassCounts = classCounts == null ? null
+                    : Arrays.copyOfRange(classCounts, slot * classCount, (slot + 1) * classCount);
+            double parentClassSum = 0;
+            if (nodeClassCounts != null) {
+                for (int nodeClassCount : nodeClassCounts)
+                    parentClassSum += SplitScorer.nLogN(nLogN, nodeClassCount);
+            }
+            int splitAttr = -1;
+            if (!isPure(count[slot], countOne[slot], nodeClassCounts)) {
+                boolean[] used = frontierUsed.get(from + slot);
+                double gainMax = 1e-9 * count[slot];
+                for (int attr = 0; attr < attrCount; attr++) {
+                    if (used[attr])
+                        continue;
+
+                    if (TrainingMetrics.ENABLED)
+                        splitEvaluations++;
+                    int cell = attr * slots + slot;
+                    double gain = nodeClassCounts == null
+                            ? SplitScorer.binaryGain(nLogN, count[slot], countOne[slot], valueOne[cell],
+                                    valueOneOne[cell])
+                            : SplitScorer.classGain(nLogN, count[slot], nodeClassCounts, parentClassSum,
+                                    valueOneClass, cell * classCount);
+                    if (gain > gainMax) {
+                        gainMax = gain;
+                        splitAttr = attr;
+                    }
+                }
+            }
+
+            fillNode(frontier.get(from + slot), splitAttr, count[slot] - countOne[slot], countOne[slot],
+                    nodeClassCounts);
+            splitAttrs[from + slot] = splitAttr;
+        }
+    }
+
+    /**
+     * move every instance of a split frontier node to the child of its attribute value, the instances of
+     * leaf nodes are done
+     * @param splitAttrs split attribute of every frontier node, -1 for a leaf node
+     * @param childOf next level positions of the left and right child of every frontier node
+     */
+    private void advance(int[] splitAttrs, int[] childOf) {
+        for (int row = 0; row < nodeOf.length; row++) {
+            int slot = nodeOf[row];
+            if (slot < 0)
+                continue;
+
+            int splitAttr = splitAttrs[slot];
+            nodeOf[row] = splitAttr == -1 ? -1 : childOf[slot * 2 + dataSet.getValue(splitAttr, row)];
+        }
+    }
+
+    /**
+     * check whether all instances of a node have the same class
+     * @param count number of instances
+     * @param countOne number of class one instances
+     * @param classCounts instances per class code, null for a binary data set
+     * @return true if the node is pure
+     */
+    private static boolean isPure(int count, int countOne, int[] classCounts) {
+        if (classCounts == null)
+            return countOne == 0 || countOne == count;
+
+        for (int classCount : classCounts) {
+            if (classCount == count)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * fill in a frontier node once it has been counted
+     * @param node node
+     * @param splitAttr column position of split attribute, -1 for a leaf node
+     * @param countZero number of class zero instances, instances whose class label is "0" if multi-class
+     * @param countOne number of class one instances, the other instances if multi-class
+     * @param classCounts instances per class code, null for a binary data set
+     */
+    private void fillNode(TreeNode node, int splitAttr, int countZero, int countOne, int[] classCounts) {
+        node.labelZeroCount = countZero;
+        node.labelOneCount = countOne;
+        if (splitAttr != -1)
+            node.attribute = dataSet.getAttrName(splitAttr);
+        else if (classCounts == null)
+            node.classLabel = DecisionTreeID3.getClassLabel(countZero, countOne);
+        else
+            node.classLabel = dataSet.getClassName(DecisionTreeID3.majorityClass(classCounts));
+
+        if (classCounts != null) {
+            node.classCounts = classCounts;
+            node.classNames = classNames;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package asg2;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: byte level csv parser working on a memory mapped file, attribute values and class
+ * labels are decoded straight into bit packed columns without creating intermediate strings.
+ * Same as DataProcessUtil, a field which is exactly "0" is stored as 0, any other field is stored as 1.
+ * Class labels are also dictionary encoded, so data sets with more than two classes keep every class.
+ * Files of numeric attributes are decoded into float columns by the same mapped windows
+ */
+public class MappedCsvParser {
+    private static final int WINDOW_SIZE = 1 << 28; // map at most 256MB of a file at a time
+    // float powers of ten which are exact, a decimal with a mantissa up to 2^24 divided by one of them is
+    // rounded once, the same as Float.parseFloat
+    private static final float[] EXACT_POWERS = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+    private String path;
+    private String[] attrNames;
+    private long dataStart; // byte offset of the first instance
+
+    /**
+     * decoder of the complete lines of one mapped window
+     */
+    private interface WindowDecoder {
+        /**
+         * decode the lines of a window
+         * @param buffer mapped window
+         * @param limit number of bytes to decode
+         * @param offset file offset of the window, used in error messages
+         * @throws IOException if an instance is malformed
+         */
+        void decode(MappedByteBuffer buffer, int limit, long offset) throws IOException;
+    }
+
+    public MappedCsvParser(String path) {
+        this.path = path;
+    }
+
+    /**
+     * parse the whole file
+     * @return data set
+     * @throws IOException if the file can not be read or an instance is malformed
+     */
+    public BinaryDataSet parse() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "r");
+             FileChannel channel = file.getChannel()) {
+            readHeader(channel);
+            long size = channel.size();
+            BinaryColumnsBuilder builder = new BinaryColumnsBuilder(attrNames, estimateRows(size - dataStart));
+            parseRange(channel, dataStart, size, builder);
+            return builder.build();
+        }
+    }
+
+    /**
+     * parse the whole file as numeric attribute values, the class label is 1 unless it is exactly "0"
+     * @return float columns and class labels
+     * @throws IOException if the file can not be read or an instance is malformed
+     */
+    NumericColumnsBuilder parseNumeric() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "r");
+             FileChannel channel = file.getChannel()) {
+            if (channel.size() == 0)
+                throw new IOException(path + " is empty");
+
+            readHeader(channel);
+            final NumericColumnsBuilder builder = new NumericColumnsBuilder(attrNames.length, 1024);
+            parseWindows(channel, dataStart, channel.size(), new WindowDecoder() {
+                @Override
+                public void decode(MappedByteBuffer buffer, int limit, long offset) throws IOException {
+                    parseNumericWindow(buffer, limit, offset, builder);
+                }
+            });
+            return builder;
+        }
+    }
+
+    /**
+     * read the attribute names from the first line of a file
+     * @param channel file channel
+     * @return attribute names, 'Class' label is excluded
+     * @throws IOException if the file can not be read
+     */
+    String[] readHeader(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int windowSize = (int) Math.min(size, WINDOW_SIZE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, windowSize);
+        int end = 0;
+        while (end < windowSize && buffer.get(end) != '\n' && buffer.get(end) != '\r')
+            end++;
+        if (end == windowSize && windowSize < size)
+            throw new IOException("header of " + path + " is longer than " + WINDOW_SIZE + " bytes");
+
+        byte[] bytes = new byte[end];
+        buffer.get(bytes);
+        String[] attrArr = new String(bytes, Charset.forName("UTF-8")).split(",");
+        attrNames = new String[attrArr.length - 1]; // exclude 'Class' label
+        System.arraycopy(attrArr, 0, attrNames, 0, attrNames.length);
+
+        dataStart = end;
+        return attrNames;
+    }
+
+    /**
+     * estimate the number of instances in a byte range, every value takes one digit and one separator
+     * @param length length of the byte range
+     * @return estimated number of instances
+     */
+    int estimateRows(long length) {
+        return (int) Math.min(Integer.MAX_VALUE - 64, length / (2L * (attrNames.length + 1)) + 1);
+    }
+
+    /**
+     * parse the instances within a byte range, the range has to start at the beginning of a line
+     * @param channel file channel
+     * @param start start offset, inclusive
+     * @param end end offset, exclusive
+     * @param builder column builder the instances are appended to
+     * @throws IOException if the file can not be read or an instance is malformed
+     */
+    void parseRange(FileChannel channel, long start, long end, final BinaryColumnsBuilder builder)
+            throws IOException {
+        parseWindows(channel, start, end, new WindowDecoder() {
+            @Override
+            public void decode(MappedByteBuffer buffer, int limit, long offset) throws IOException {
+                parseWindow(buffer, limit, offset, builder);
+            }
+        });
+    }
+
+    /**
+     * map a byte range window by window and decode the complete lines of every window
+     * @param channel file channel
+     * @param start start offset, inclusive, at the beginning of a line
+     * @param end end offset, exclusive
+     * @param decoder decoder of the lines
+     * @throws IOException if the file can not be read or an instance is malformed
+     */
+    private void parseWindows(FileChannel channel, long start, long end, WindowDecoder decoder) throws IOException {
+        long pos = start;
+        int windowSize = WINDOW_SIZE;
+        while (pos < end) {
+            int length = (int) Math.min(windowSize, end - pos);
+            boolean lastWindow = pos + length == end;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos, length);
+            int limit = lastWindow ? length : lastLineEnd(buffer, length);
+            if (limit == 0) {
+                // an instance is longer than the window, map a larger one
+                if (windowSize > Integer.MAX_VALUE / 2)
+                    throw new IOException("instance at byte " + pos + " of " + path + " is too long");
+                windowSize *= 2;
+                continue;
+            }
+
+            decoder.decode(buffer, limit, pos);
+            pos += limit;
+        }
+    }
+
+    /**
+     * find the end of the last complete line in a window
+     * @param buffer mapped window
+     * @param length window length
+     * @return number of bytes up to and including the last line terminator, 0 if there is none
+     */
+    private int lastLineEnd(MappedByteBuffer buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            byte b = buffer.get(i);
+            if (b == '\n' || b == '\r')
+                return i + 1;
+        }
+
+        return 0;
+    }
+
+    /**
+     * decode the lines of a window into the column builder, empty lines are skipped
+     * @param buffer mapped window
+     * @param limit number of bytes to decode
+     * @param offset file offset of the window, used in error messages
+     * @param builder column builder
+     * @throws IOException if an instance does not have one value per attribute plus the class label
+     */
+    private void parseWindow(MappedByteBuffer buffer, int limit, long offset, BinaryColumnsBuilder builder) throws IOException {
+        int attrCount = builder.getAttrCount();
+        int row = -1; // -1 means the current line is empty so far
+        int field = 0;
+        int fieldLength = 0;
+        byte lastByte = 0;
+        int lineStart = 0;
+        byte[] label = new byte[64]; // bytes of the class label field
+        for (int i = 0; i <= limit; i++) {
+            byte b = i == limit ? (byte) '\n' : buffer.get(i);
+            if (b == ',' || b == '\n' || b == '\r') {
+                if (row == -1 && b != ',') {
+                    lineStart = i + 1; // empty line
+                    continue;
+                }
+                if (row == -1)
+                    row = builder.newRow();
+
+                boolean zero = fieldLength == 1 && lastByte == '0';
+                if (!zero) {
+                    if (field < attrCount)
+                        builder.setValue(field, row);
+                    else if (field == attrCount)
+                        builder.setLabel(row);
+                }
+                if (field == attrCount) {
+                    try {
+                        builder.setClass(row, label, fieldLength);
+                    } catch (IllegalStateException e) {
+                        throw new IOException(path + ": " + e.getMessage(), e);
+                    }
+                }
+                field++;
+                fieldLength = 0;
+
+                if (b != ',') {
+                    if (field != attrCount + 1)
+                        throw new IOException("instance at byte " + (offset + lineStart) + " of " + path
+                                + " has " + field + " values, expected " + (attrCount + 1));
+                    row = -1;
+                    field = 0;
+                    lineStart = i + 1;
+                }
+            } else {
+                if (row == -1)
+                    row = builder.newRow();
+                if (field == attrCount) {
+                    if (fieldLength == label.length)
+                        label = Arrays.copyOf(label, fieldLength * 2);
+                    label[fieldLength] = b;
+                }
+                fieldLength++;
+                lastByte = b;
+            }
+        }
+    }
+
+    /**
+     * decode the lines of a window of numeric attribute values into float columns, empty lines are skipped
+     * @param buffer mapped window
+     * @param limit number of bytes to decode
+     * @param offset file offset of the window, used in error messages
+     * @param builder column builder
+     * @throws IOException if an instance does not have one number per attribute plus the class label
+     */
+    private void parseNumericWindow(MappedByteBuffer buffer, int limit, long offset, NumericColumnsBuilder builder)
+            throws IOException {
+        int attrCount = builder.getAttrCount();
+        int row = -1; // -1 means the current line is empty so far
+        int field = 0;
+        int fieldLength = 0;
+        int lineStart = 0;
+        byte[] value = new byte[64]; // bytes of the current field
+        for (int i = 0; i <= limit; i++) {
+            byte b = i == limit ? (byte) '\n' : buffer.get(i);
+            if (b == ',' || b == '\n' || b == '\r') {
+                if (row == -1 && b != ',') {
+                    lineStart = i + 1; // empty line
+                    continue;
+                }
+                if (row == -1)
+                    row = builder.newRow();
+
+                if (field < attrCount) {
+                    try {
+                        builder.setValue(field, row, parseFloat(value, fieldLength));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("instance at byte " + (offset + lineStart) + " of " + path +
+                                " has a non numeric value", e);
+                    }
+                } else if (field == attrCount && !(fieldLength == 1 && value[0] == '0')) {
+                    builder.setLabel(row);
+                }
+                field++;
+                fieldLength = 0;
+
+                if (b != ',') {
+                    if (field != attrCount + 1)
+                        throw new IOException("instance at byte " + (offset + lineStart) + " of " + path
+                                + " has " + field + " values, expected " + (attrCount + 1));
+                    row = -1;
+                    field = 0;
+                    lineStart = i + 1;
+                }
+            } else {
+                if (row == -1)
+                    row = builder.newRow();
+                if (fieldLength == value.length)
+                    value = Arrays.copyOf(value, fieldLength * 2);
+                value[fieldLength++] = b;
+            }
+        }
+    }
+
+    /**
+     * decode a number without creating a string for plain decimals like "-1.25" whose result is exact after
+     * one rounding, any other form goes through Float.parseFloat, so the result is always the same as it
+     * @param bytes field bytes
+     * @param length number of field bytes
+     * @return value
+     * @throws NumberFormatException if the field is not a number
+     */
+    static float parseFloat(byte[] bytes, int length) {
+        int i = 0;
+        boolean negative = length > 0 && bytes[0] == '-';
+        if (length > 0 && (bytes[0] == '-' || bytes[0] == '+'))
+            i++;
+        long mantissa = 0;
+        int digits = 0, scale = 0;
+        boolean point = false;
+        for (; i < length; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9' && digits < 18) {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (point)
+                    scale++;
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+
+        if (i < length || digits == 0 || mantissa > 1 << 24 || scale >= EXACT_POWERS.length)
+            return Float.parseFloat(new String(bytes, 0, length, Charset.forName("UTF-8")));
+
+        float value = mantissa / EXACT_POWERS[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * get the attribute names read from the header
+     * @return attribute names
+     */
+    public String[] getAttrNames() {
+        return attrNames;
+    }
+
+    /**
+     * get the byte offset of the first instance
+     * @return byte offset
+     */
+    long getDataStart() {
+        return dataStart;
+    }
+}
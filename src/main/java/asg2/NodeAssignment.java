@@ -0,0 +1,138 @@
+package asg2;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: the node every instance of a SegmentedColumnStore reaches while a tree is built level by level,
+ * one int per instance kept by segment. Segments are kept on the heap while they fit into the memory budget,
+ * the remaining segments are spilled to a temporary file and read into a buffer when their segment is
+ * streamed, then written back after the instances moved. All instances start at node 0
+ */
+class NodeAssignment implements Closeable {
+    private final SegmentedColumnStore store;
+    private final int[][] inMemory; // nodes of the segments kept on the heap, null for a spilled segment
+    private int spilledCount = 0;
+    private File spillFile;
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private ByteBuffer bytes; // transfer buffer of one spilled segment
+    private int[] buffer; // nodes of the spilled segment which was read last
+
+    /**
+     * constructor
+     * @param store data set
+     * @param memoryBudget bytes of node assignments kept on the heap, the rest is spilled
+     * @throws IOException if the spill file can not be created
+     */
+    NodeAssignment(SegmentedColumnStore store, long memoryBudget) throws IOException {
+        this.store = store;
+        inMemory = new int[store.getSegmentCount()][];
+        long used = 0;
+        for (int segment = 0; segment < inMemory.length; segment++) {
+            long bytes = store.getSegmentSize(segment) * 4L;
+            if (used + bytes <= memoryBudget) {
+                inMemory[segment] = new int[store.getSegmentSize(segment)];
+                used += bytes;
+            } else {
+                spilledCount++;
+            }
+        }
+        if (spilledCount == 0)
+            return;
+
+        spillFile = File.createTempFile("asg2-nodes", ".tmp");
+        spillFile.deleteOnExit();
+        file = new RandomAccessFile(spillFile, "rw");
+        channel = file.getChannel();
+        bytes = ByteBuffer.allocateDirect(store.getSegmentRows() * 4);
+        buffer = new int[store.getSegmentRows()];
+        for (int segment = 0; segment < inMemory.length; segment++) {
+            if (inMemory[segment] == null)
+                write(segment, buffer); // every instance starts at the root
+        }
+    }
+
+    /**
+     * get the number of segments whose nodes are spilled to disk
+     * @return number of spilled segments
+     */
+    int getSpilledCount() {
+        return spilledCount;
+    }
+
+    /**
+     * get the nodes of the instances of a segment
+     * @param segment segment number
+     * @return nodes by instance position in the segment, the array of a spilled segment is reused by the next
+     *         read
+     * @throws IOException if the spill file can not be read
+     */
+    int[] read(int segment) throws IOException {
+        if (inMemory[segment] != null)
+            return inMemory[segment];
+
+        int size = store.getSegmentSize(segment);
+        bytes.clear();
+        bytes.limit(size * 4);
+        long position = spillOffset(segment);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, position + bytes.position()) < 0)
+                throw new IOException(spillFile + " is truncated");
+        }
+        bytes.flip();
+        bytes.asIntBuffer().get(buffer, 0, size);
+        return buffer;
+    }
+
+    /**
+     * store the nodes of the instances of a segment after they changed, nothing to do for a segment on the heap
+     * @param segment segment number
+     * @param nodes nodes by instance position in the segment
+     * @throws IOException if the spill file can not be written
+     */
+    void write(int segment, int[] nodes) throws IOException {
+        if (inMemory[segment] != null)
+            return;
+
+        int size = store.getSegmentSize(segment);
+        bytes.clear();
+        IntBuffer ints = bytes.asIntBuffer();
+        ints.put(nodes, 0, size);
+        bytes.limit(size * 4);
+        long position = spillOffset(segment);
+        while (bytes.hasRemaining())
+            channel.write(bytes, position + bytes.position());
+    }
+
+    /**
+     * get the byte offset of a segment in the spill file
+     * @param segment segment number
+     * @return offset
+     */
+    private long spillOffset(int segment) {
+        return (long) segment * store.getSegmentRows() * 4;
+    }
+
+    /**
+     * close and delete the spill file
+     * @throws IOException if the spill file can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (file == null)
+            return;
+
+        file.close();
+        if (!spillFile.delete())
+            spillFile.deleteOnExit();
+        file = null;
+    }
+}
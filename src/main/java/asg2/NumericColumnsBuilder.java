@@ -0,0 +1,97 @@
+package asg2;
+
+import java.util.Arrays;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: growable float columns used while reading a file into a NumericDataSet, the class label is
+ * stored as the bit "label is not 0" like in BinaryColumnsBuilder
+ */
+class NumericColumnsBuilder {
+    private float[][] columns;
+    private long[] labels;
+    private int size; // number of instances appended so far
+
+    /**
+     * constructor
+     * @param attrCount number of attributes
+     * @param capacity expected number of instances, the columns grow if it is exceeded
+     */
+    NumericColumnsBuilder(int attrCount, int capacity) {
+        int words = Math.max(1, BinaryDataSet.wordCount(capacity));
+        columns = new float[attrCount][words * 64];
+        labels = new long[words];
+    }
+
+    /**
+     * get the number of attributes
+     * @return number of attributes
+     */
+    int getAttrCount() {
+        return columns.length;
+    }
+
+    /**
+     * get the number of instances appended so far
+     * @return number of instances
+     */
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * start a new instance, all of its values are 0 until they are set
+     * @return position of the new instance
+     */
+    int newRow() {
+        if ((size >>> 6) == labels.length)
+            grow();
+
+        return size++;
+    }
+
+    /**
+     * set attribute value of an instance
+     * @param attr column position
+     * @param row instance position
+     * @param value attribute value
+     */
+    void setValue(int attr, int row, float value) {
+        columns[attr][row] = value;
+    }
+
+    /**
+     * set class label of an instance to 1
+     * @param row instance position
+     */
+    void setLabel(int row) {
+        labels[row >>> 6] |= 1L << row;
+    }
+
+    /**
+     * get the attribute columns, values beyond getSize are unused
+     * @return columns by attribute position
+     */
+    float[][] getColumns() {
+        return columns;
+    }
+
+    /**
+     * get the packed class labels of the instances appended so far
+     * @return labels, bit set means class 1
+     */
+    long[] getLabels() {
+        return Arrays.copyOf(labels, BinaryDataSet.wordCount(size));
+    }
+
+    /**
+     * double the capacity of all columns
+     */
+    private void grow() {
+        int words = labels.length * 2;
+        for (int attr = 0; attr < columns.length; attr++)
+            columns[attr] = Arrays.copyOf(columns[attr], words * 64);
+        labels = Arrays.copyOf(labels, words);
+    }
+}
@@ -0,0 +1,160 @@
+package asg2;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: column oriented data set for numeric attributes. Every value is replaced by its quantile
+ * bucket when the file is loaded, so a column is a byte[] of bucket numbers and split search only works
+ * on bucket histograms. Files are decoded from mapped windows by MappedCsvParser. The class label column
+ * is packed into a long[] bitset like in BinaryDataSet, a class label which is exactly "0" is stored as 0
+ * and any other class label as 1
+ */
+public class NumericDataSet {
+    private String[] attrNames;
+    private byte[][] bins; // bins[attr][row], bucket number as unsigned byte
+    private long[] labels; // bit set means class label "1"
+    private int size;
+    private QuantileBinning binning;
+    private Map<String, Integer> attrIndexMap; // attribute name --> column position
+
+    private NumericDataSet(String[] attrNames, byte[][] bins, long[] labels, int size, QuantileBinning binning) {
+        this.attrNames = attrNames;
+        this.bins = bins;
+        this.labels = labels;
+        this.size = size;
+        this.binning = binning;
+
+        attrIndexMap = new HashMap<>();
+        for (int i = 0; i < attrNames.length; i++)
+            attrIndexMap.put(attrNames[i], i);
+    }
+
+    /**
+     * load a training file, the bucket edges are taken from its values
+     * @param path csv file path
+     * @param maxBins maximum number of buckets per attribute, at most QuantileBinning.MAX_BINS
+     * @return data set
+     * @throws IOException if the file can not be read or an instance is malformed
+     */
+    public static NumericDataSet load(String path, int maxBins) throws IOException {
+        return load(path, maxBins, null);
+    }
+
+    /**
+     * load a validation or test file, values are binned with the bucket edges of the training data
+     * @param path csv file path
+     * @param binning binning of the training data set
+     * @return data set
+     * @throws IOException if the file can not be read or an instance is malformed
+     */
+    public static NumericDataSet load(String path, QuantileBinning binning) throws IOException {
+        return load(path, 0, binning);
+    }
+
+    /**
+     * read a csv file into float columns with MappedCsvParser and bin them
+     * @param path csv file path
+     * @param maxBins maximum number of buckets per attribute if the binning is fitted
+     * @param binning existing binning, null to fit one on this file
+     * @return data set
+     * @throws IOException if the file can not be read or an instance is malformed
+     */
+    private static NumericDataSet load(String path, int maxBins, QuantileBinning binning) throws IOException {
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.LOAD);
+        MappedCsvParser parser = new MappedCsvParser(path);
+        NumericColumnsBuilder builder = parser.parseNumeric();
+        String[] attrNames = parser.getAttrNames();
+        if (binning != null && binning.getAttrCount() != attrNames.length)
+            throw new IOException(path + " has " + attrNames.length + " attributes, the binning has " +
+                    binning.getAttrCount());
+
+        float[][] columns = builder.getColumns();
+        int size = builder.getSize();
+        if (binning == null)
+            binning = QuantileBinning.fit(columns, size, maxBins);
+        byte[][] bins = new byte[attrNames.length][size];
+        for (int attr = 0; attr < attrNames.length; attr++) {
+            for (int row = 0; row < size; row++)
+                bins[attr][row] = (byte) binning.bin(attr, columns[attr][row]);
+            columns[attr] = null; // the raw values are not needed any more
+        }
+
+        TrainingMetrics.end(timer, size);
+        return new NumericDataSet(attrNames, bins, builder.getLabels(), size, binning);
+    }
+
+    /**
+     * get the number of instances
+     * @return number of instances
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * get the number of attributes
+     * @return number of attributes
+     */
+    public int getAttrCount() {
+        return attrNames.length;
+    }
+
+    /**
+     * get attribute name by column position
+     * @param attr column position
+     * @return attribute name
+     */
+    public String getAttrName(int attr) {
+        return attrNames[attr];
+    }
+
+    /**
+     * get column position by attribute name
+     * @param attrName attribute name
+     * @return column position, -1 if the attribute does not exist
+     */
+    public int getAttrIndex(String attrName) {
+        Integer index = attrIndexMap.get(attrName);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * get the bucket edges the values were binned with
+     * @return binning
+     */
+    public QuantileBinning getBinning() {
+        return binning;
+    }
+
+    /**
+     * get the bucket of an attribute value of an instance
+     * @param attr column position
+     * @param row instance position
+     * @return bucket number
+     */
+    public int getBin(int attr, int row) {
+        return bins[attr][row] & 0xFF;
+    }
+
+    /**
+     * get class label of an instance
+     * @param row instance position
+     * @return 0 or 1
+     */
+    public int getLabel(int row) {
+        return (int) (labels[row >>> 6] >>> row) & 1;
+    }
+
+    /**
+     * get the bucket column of an attribute, the array must not be modified
+     * @param attr column position
+     * @return bucket numbers
+     */
+    byte[] getBinColumn(int attr) {
+        return bins[attr];
+    }
+}
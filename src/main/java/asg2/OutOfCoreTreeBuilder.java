@@ -0,0 +1,320 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: build an ID3 decision tree on a SegmentedColumnStore which is larger than the heap. Like
+ * LevelWiseTreeBuilder the tree grows level by level, every instance is assigned to a node of the current
+ * level and the counts of all nodes of a level are filled by streaming once over the mapped segments.
+ * The same pass first moves the instances of a segment to the children chosen by the previous level, so
+ * there is one pass per level unless a level has more nodes than fit into one count table. Only one segment
+ * is mapped at a time, the instance --> node assignment is kept on the heap up to a memory budget and the
+ * rest is spilled to a temporary file (see NodeAssignment). The gain of a split is SplitScorer.binaryGain,
+ * as for the in-memory builders. Only two class labels are supported
+ */
+public class OutOfCoreTreeBuilder {
+    private static final int MAX_TABLE_SIZE = 1 << 24; // counts per pass, larger levels take several passes
+    private SegmentedColumnStore store;
+    private long memoryBudget;
+    private double[] nLogN;
+    private int attrCount;
+    private int nodeCount = 0;
+    private int leafCount = 0;
+    private int passCount = 0;
+    private int spilledCount = 0;
+    private long splitEvaluations = 0; // scored candidates, only counted with metrics
+
+    /**
+     * constructor
+     * @param store training data set
+     * @param memoryBudget bytes of instance --> node assignments kept on the heap
+     */
+    public OutOfCoreTreeBuilder(SegmentedColumnStore store, long memoryBudget) {
+        if (store.getSize() > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("node counts are limited to " + Integer.MAX_VALUE + " instances");
+
+        this.store = store;
+        this.memoryBudget = memoryBudget;
+        this.nLogN = SplitScorer.createTable((int) store.getSize());
+        this.attrCount = store.getAttrCount();
+    }
+
+    /**
+     * build a tree using all instances and all attributes of the data set
+     * @return root node, null if the data set is empty
+     * @throws IOException if the store can not be read or the node assignments can not be spilled
+     */
+    public TreeNode build() throws IOException {
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.BUILD);
+        nodeCount = 0;
+        leafCount = 0;
+        passCount = 0;
+        splitEvaluations = 0;
+        if (store.getSize() == 0) {
+            TrainingMetrics.endBuild(timer, null, 0, 0);
+            return null;
+        }
+
+        TreeNode root = new TreeNode(-1, 0, null, null, 0, 0);
+        try (NodeAssignment nodes = new NodeAssignment(store, memoryBudget)) {
+            spilledCount = nodes.getSpilledCount();
+            List<TreeNode> frontier = new ArrayList<>();
+            frontier.add(root);
+            int[] previousSplits = null; // split attributes of the previous level, null for the root
+            int[] previousChildOf = null; // level positions of the children of the previous level
+            while (!frontier.isEmpty()) {
+                int[] splitAttrs = new int[frontier.size()];
+                int batch = Math.max(1, MAX_TABLE_SIZE / Math.max(1, attrCount));
+                for (int from = 0; from < frontier.size(); from += batch) {
+                    splitLevel(nodes, frontier, from, Math.min(frontier.size(), from + batch), splitAttrs,
+                            previousSplits, previousChildOf);
+                    previousSplits = null; // the instances moved in the first pass of the level
+                }
+
+                // the children of the split nodes are the next level, left before right
+                List<TreeNode> next = new ArrayList<>();
+                int[] childOf = new int[frontier.size() * 2];
+                for (int i = 0; i < frontier.size(); i++) {
+                    if (splitAttrs[i] == -1)
+                        continue;
+
+                    TreeNode node = frontier.get(i);
+                    node.left = new TreeNode(-1, node.height + 1, null, null, 0, 0);
+                    node.right = new TreeNode(-1, node.height + 1, null, null, 0, 0);
+                    childOf[i * 2] = next.size();
+                    next.add(node.left);
+                    childOf[i * 2 + 1] = next.size();
+                    next.add(node.right);
+                }
+
+                frontier = next;
+                previousSplits = splitAttrs;
+                previousChildOf = childOf;
+            }
+        }
+
+        int[] counts = DecisionTreeID3.assignIds(root);
+        nodeCount = counts[0];
+        leafCount = counts[1];
+        // every pass reads the label column and all attribute columns once
+        TrainingMetrics.endBuild(timer, root, splitEvaluations, (long) passCount * store.getSize() * (attrCount + 1));
+        return root;
+    }
+
+    /**
+     * get the number of nodes of the last built tree
+     * @return number of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * get the number of leaf nodes of the last built tree
+     * @return number of leaf nodes
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * get the number of passes over the store of the last build
+     * @return number of passes
+     */
+    public int getPassCount() {
+        return passCount;
+    }
+
+    /**
+     * get the number of segments whose node assignments were spilled to disk by the last build
+     * @return number of spilled segments
+     */
+    public int getSpilledCount() {
+        return spilledCount;
+    }
+
+    /**
+     * stream over the segments once: move the instances split by the previous level to their children, then
+     * count the level positions [from, to), fill in their counts and labels and choose their split attributes
+     * @param nodes instance --> level position assignment, -1 once an instance reached a leaf
+     * @param frontier nodes of the current level
+     * @param from first level position, inclusive
+     * @param to last level position, exclusive
+     * @param splitAttrs receives the split attribute of every node of the level, -1 for a leaf node
+     * @param previousSplits split attributes of the previous level, null if the instances are in place
+     * @param previousChildOf level positions of the left and right child of every node of the previous level
+     * @throws IOException if the store can not be read or the node assignments can not be spilled
+     */
+    private void splitLevel(NodeAssignment nodes, List<TreeNode> frontier, int from, int to, int[] splitAttrs,
+                            int[] previousSplits, int[] previousChildOf) throws IOException {
+        passCount++;
+        int slots = to - from;
+        int[] count = new int[slots];
+        int[] countOne = new int[slots];
+        // counts of the instances whose attribute value is 1, indexed by attribute first
+        int[] valueOne = new int[attrCount * slots];
+        int[] valueOneOne = new int[attrCount * slots];
+        for (int s = 0; s < store.getSegmentCount(); s++) {
+            SegmentedColumnStore.Segment segment = store.map(s);
+            int[] nodeOf = nodes.read(s);
+            if (previousSplits != null) {
+                for (int row = 0; row < segment.getSize(); row++) {
+                    int slot = nodeOf[row];
+                    if (slot < 0)
+                        continue;
+
+                    int splitAttr = previousSplits[slot];
+                    nodeOf[row] = splitAttr == -1 ? -1
+                            : previousChildOf[slot * 2 + (int) (segment.word(splitAttr, row >>> 6) >>> row & 1)];
+                }
+                nodes.write(s, nodeOf);
+            }
+
+            int words = segment.getWordCount();
+            for (int w = 0; w < words; w++) {
+                long labels = segment.word(attrCount, w);
+                int end = Math.min(64, segment.getSize() - (w << 6));
+                for (int i = 0; i < end; i++) {
+                    int slot = nodeOf[(w << 6) + i] - from;
+                    if (slot < 0 || slot >= slots)
+                        continue;
+
+                    count[slot]++;
+                    countOne[slot] += (int) (labels >>> i) & 1;
+                }
+            }
+            for (int attr = 0; attr < attrCount; attr++) {
+                int base = attr * slots;
+                for (int w = 0; w < words; w++) {
+                    long bits = segment.word(attr, w);
+                    if (bits == 0)
+                        continue;
+
+                    long labels = segment.word(attrCount, w);
+                    while (bits != 0) {
+                        int i = Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        int slot = nodeOf[(w << 6) + i] - from;
+                        if (slot < 0 || slot >= slots)
+                            continue;
+
+                        valueOne[base + slot]++;
+                        valueOneOne[base + slot] += (int) (labels >>> i) & 1;
+                    }
+                }
+            }
+        }
+
+        for (int slot = 0; slot < slots; slot++) {
+            int splitAttr = -1;
+            if (countOne[slot] != 0 && countOne[slot] != count[slot]) {
+                // an attribute the node's ancestors split on has the same value for all its instances, no gain
+                double gainMax = 1e-9 * count[slot];
+                for (int attr = 0; attr < attrCount; attr++) {
+                    if (TrainingMetrics.ENABLED)
+                        splitEvaluations++;
+                    int cell = attr * slots + slot;
+                    double gain = SplitScorer.binaryGain(nLogN, count[slot], countOne[slot], valueOne[cell],
+                            valueOneOne[cell]);
+                    if (gain > gainMax) {
+                        gainMax = gain;
+                        splitAttr = attr;
+                    }
+                }
+            }
+
+            fillNode(frontier.get(from + slot), splitAttr, count[slot] - countOne[slot], countOne[slot]);
+            splitAttrs[from + slot] = splitAttr;
+        }
+    }
+
+    /**
+     * fill in a node of the level once it has been counted
+     * @param node node
+     * @param splitAttr column position of split attribute, -1 for a leaf node
+     * @param countZero number of class zero instances
+     * @param countOne number of class one instances
+     */
+    private void fillNode(TreeNode node, int splitAttr, int countZero, int countOne) {
+        node.labelZeroCount = countZero;
+        node.labelOneCount = countOne;
+        if (splitAttr != -1)
+            node.attribute = store.getAttrName(splitAttr);
+        else
+            node.classLabel = DecisionTreeID3.getClassLabel(countZero, countOne);
+    }
+
+    /**
+     * count the correct predictions of a tree on a store, one segment on the heap at a time
+     * @param root root node
+     * @param store data set
+     * @return number of correct predictions
+     * @throws IOException if the store can not be read
+     */
+    public static long countCorrect(TreeNode root, SegmentedColumnStore store) throws IOException {
+        long correct = 0;
+        for (int s = 0; s < store.getSegmentCount(); s++) {
+            BinaryDataSet segment = store.readSegment(s);
+            correct += CompiledTree.compile(root, segment).countCorrect(segment);
+        }
+
+        return correct;
+    }
+
+    /**
+     * train a tree on a csv file or column store which does not fit on the heap and report its accuracy.
+     * A csv file is converted into a store next to it first, unless the store is newer than the file
+     * @param args training set (csv or store), validation set and test set csv paths, optionally the instances
+     *             per segment and the memory budget of the node assignments in MB
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: OutOfCoreTreeBuilder <training set> <validation set> <test set> " +
+                    "[instances per segment] [memory budget in MB]");
+            return;
+        }
+
+        int segmentRows = args.length > 3 ? Integer.parseInt(args[3]) : 1 << 20;
+        long memoryBudget = (args.length > 4 ? Long.parseLong(args[4]) : 256) << 20;
+        try {
+            SegmentedColumnStore trainSet;
+            if (args[0].endsWith(".csv")) {
+                File csvFile = new File(args[0]);
+                File storeFile = new File(args[0] + ".columns");
+                if (storeFile.isFile() && storeFile.lastModified() >= csvFile.lastModified())
+                    trainSet = SegmentedColumnStore.open(storeFile.getPath());
+                else
+                    trainSet = SegmentedColumnStore.convert(args[0], storeFile.getPath(), segmentRows);
+            } else {
+                trainSet = SegmentedColumnStore.open(args[0]);
+            }
+
+            long start = System.nanoTime();
+            OutOfCoreTreeBuilder builder = new OutOfCoreTreeBuilder(trainSet, memoryBudget);
+            TreeNode root = builder.build();
+            System.out.println("Built a tree with " + builder.getNodeCount() + " nodes and " +
+                    builder.getLeafCount() + " leaf nodes in " + builder.getPassCount() + " passes over " +
+                    trainSet.getSegmentCount() + " segments (" + builder.getSpilledCount() + " spilled) in " +
+                    (System.nanoTime() - start) / 1000000 + " ms");
+            System.out.println("Accuracy of the model on the training data set = " +
+                    (double) countCorrect(root, trainSet) / trainSet.getSize());
+
+            String[] names = {"validation", "testing"};
+            for (int i = 0; i < names.length; i++) {
+                BinaryDataSet dataSet = new MappedCsvParser(args[i + 1]).parse();
+                CompiledTree tree = CompiledTree.compile(root, dataSet);
+                System.out.println("Accuracy of the model on the " + names[i] + " data set = " +
+                        (double) tree.countCorrect(dataSet) / dataSet.getSize());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package asg2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: load csv files into bit packed column data sets using all cores. Every file is split into
+ * line aligned byte ranges, the ranges of all files are parsed concurrently and merged afterwards.
+ * A binary snapshot is written next to every parsed file and used instead of the csv file as long as
+ * the csv file keeps its size and modified time
+ */
+public class ParallelDataLoader {
+    private static final long MIN_CHUNK_SIZE = 1 << 20; // do not split a file into ranges smaller than 1MB
+    private int threadCount;
+    private boolean snapshotEnabled = true;
+
+    /**
+     * constructor, use one thread per available processor
+     */
+    public ParallelDataLoader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * constructor
+     * @param threadCount number of parsing threads
+     */
+    public ParallelDataLoader(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * enable or disable reading and writing data set snapshots, enabled by default
+     * @param snapshotEnabled true to use snapshots
+     */
+    public void setSnapshotEnabled(boolean snapshotEnabled) {
+        this.snapshotEnabled = snapshotEnabled;
+    }
+
+    /**
+     * load one file
+     * @param path file path
+     * @return data set
+     * @throws IOException if the file can not be read or an instance is malformed
+     */
+    public BinaryDataSet load(String path) throws IOException {
+        return loadAll(path)[0];
+    }
+
+    /**
+     * load several files at the same time, every file is parsed only once
+     * @param paths file paths
+     * @return data sets in the same order as the paths
+     * @throws IOException if a file can not be read or an instance is malformed
+     */
+    public BinaryDataSet[] loadAll(String... paths) throws IOException {
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.LOAD);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<List<Future<BinaryDataSet>>> fileFutures = new ArrayList<>();
+            boolean[] fromSnapshot = new boolean[paths.length];
+            long[] csvSizes = new long[paths.length];
+            long[] csvModifiedTimes = new long[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                File csvFile = new File(paths[i]);
+                csvSizes[i] = csvFile.length();
+                csvModifiedTimes[i] = csvFile.lastModified();
+                final DataSetSnapshot snapshot = new DataSetSnapshot(paths[i]);
+                fromSnapshot[i] = snapshotEnabled && snapshot.isValid();
+                if (fromSnapshot[i]) {
+                    List<Future<BinaryDataSet>> futures = new ArrayList<>();
+                    futures.add(executor.submit(new Callable<BinaryDataSet>() {
+                        @Override
+                        public BinaryDataSet call() throws Exception {
+                            return snapshot.read();
+                        }
+                    }));
+                    fileFutures.add(futures);
+                } else {
+                    fileFutures.add(submitChunks(executor, paths[i]));
+                }
+            }
+
+            BinaryDataSet[] dataSets = new BinaryDataSet[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                List<BinaryDataSet> parts = new ArrayList<>();
+                for (Future<BinaryDataSet> future : fileFutures.get(i))
+                    parts.add(getResult(future));
+                dataSets[i] = BinaryDataSet.concat(parts);
+
+                if (snapshotEnabled && !fromSnapshot[i]) {
+                    try {
+                        new DataSetSnapshot(paths[i]).write(dataSets[i], csvSizes[i], csvModifiedTimes[i]);
+                    } catch (IOException e) {
+                        e.printStackTrace(); // the data set is still usable without a snapshot
+                    }
+                }
+            }
+
+            if (TrainingMetrics.ENABLED) {
+                long rows = 0;
+                for (BinaryDataSet dataSet : dataSets)
+                    rows += dataSet.getSize();
+                TrainingMetrics.end(timer, rows);
+            }
+            return dataSets;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * split a file into line aligned byte ranges and submit one parsing task per range
+     * @param executor executor
+     * @param path file path
+     * @return futures of the parsed ranges in file order
+     * @throws IOException if the file can not be read
+     */
+    private List<Future<BinaryDataSet>> submitChunks(ExecutorService executor, final String path) throws IOException {
+        final MappedCsvParser header = new MappedCsvParser(path);
+        long[] bounds;
+        try (RandomAccessFile file = new RandomAccessFile(path, "r");
+             FileChannel channel = file.getChannel()) {
+            header.readHeader(channel);
+            bounds = splitRange(channel, header.getDataStart(), channel.size());
+        }
+
+        List<Future<BinaryDataSet>> futures = new ArrayList<>();
+        for (int i = 0; i < bounds.length - 1; i++) {
+            final long start = bounds[i];
+            final long end = bounds[i + 1];
+            futures.add(executor.submit(new Callable<BinaryDataSet>() {
+                @Override
+                public BinaryDataSet call() throws Exception {
+                    try (RandomAccessFile file = new RandomAccessFile(path, "r");
+                         FileChannel channel = file.getChannel()) {
+                        BinaryColumnsBuilder builder = new BinaryColumnsBuilder(header.getAttrNames(),
+                                header.estimateRows(end - start));
+                        header.parseRange(channel, start, end, builder);
+                        return builder.build();
+                    }
+                }
+            }));
+        }
+
+        return futures;
+    }
+
+    /**
+     * split a byte range into pieces which start at the beginning of a line
+     * @param channel file channel
+     * @param start start offset of the first instance
+     * @param end end of file
+     * @return range bounds, range i is [bounds[i], bounds[i + 1])
+     * @throws IOException if the file can not be read
+     */
+    private long[] splitRange(FileChannel channel, long start, long end) throws IOException {
+        long length = end - start;
+        int chunkCount = (int) Math.max(1, Math.min(threadCount, length / MIN_CHUNK_SIZE));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(start);
+        for (int i = 1; i < chunkCount; i++) {
+            long bound = nextLineStart(channel, start + length * i / chunkCount, end);
+            if (bound > bounds.get(bounds.size() - 1) && bound < end)
+                bounds.add(bound);
+        }
+        bounds.add(end);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = bounds.get(i);
+        return result;
+    }
+
+    /**
+     * find the beginning of the first line after an offset
+     * @param channel file channel
+     * @param offset offset
+     * @param end end of file
+     * @return offset right after the next line terminator, end if there is none
+     * @throws IOException if the file can not be read
+     */
+    private long nextLineStart(FileChannel channel, long offset, long end) throws IOException {
+        long pos = offset;
+        while (pos < end) {
+            int length = (int) Math.min(MIN_CHUNK_SIZE, end - pos);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos, length);
+            for (int i = 0; i < length; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n' || b == '\r')
+                    return pos + i + 1;
+            }
+            pos += length;
+        }
+
+        return end;
+    }
+
+    /**
+     * wait for a parsing task and unwrap its exception
+     * @param future future
+     * @return parsed range
+     * @throws IOException if the task failed to read the file
+     */
+    private BinaryDataSet getResult(Future<BinaryDataSet> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while loading data", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+}
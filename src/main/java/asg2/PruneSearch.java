@@ -0,0 +1,213 @@
+package asg2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: search for a randomly pruned tree on several threads. Trial i prunes the nodes chosen by a
+ * random number generator seeded from (seed, i), so every trial can run on any thread and the result only
+ * depends on the seed. Workers share the read-only pruner, compiled tree and validation data set, and stop
+ * taking new trials once a trial reaches the target accuracy
+ */
+public class PruneSearch {
+    private TreePruner pruner;
+    private CompiledTree compiledTree; // the original tree compiled for the validation data set
+    private BinaryDataSet validation;
+    private long[] validationRows; // bitset of the validation instances of the data set, null for all
+    private int threadCount;
+
+    // state of the running search
+    private AtomicInteger nextTrial;
+    private AtomicInteger firstHit; // smallest trial reaching the target, Integer.MAX_VALUE if none
+    private final Object bestLock = new Object(); // guards bestTrial and bestCorrect
+    private int bestTrial;
+    private int bestCorrect;
+
+    /**
+     * constructor
+     * @param pruner pruner of the original tree
+     * @param compiledTree the original tree compiled for the validation data set
+     * @param validation validation data set
+     * @param threadCount number of worker threads
+     */
+    public PruneSearch(TreePruner pruner, CompiledTree compiledTree, BinaryDataSet validation, int threadCount) {
+        this(pruner, compiledTree, validation, null, threadCount);
+    }
+
+    /**
+     * constructor validating on a subset of a data set, e.g. one fold of a cross-validation
+     * @param pruner pruner of the original tree
+     * @param compiledTree the original tree compiled for the data set
+     * @param dataSet data set containing the validation instances
+     * @param validationRows bitset of the validation instances, null for all instances
+     * @param threadCount number of worker threads
+     */
+    public PruneSearch(TreePruner pruner, CompiledTree compiledTree, BinaryDataSet dataSet, long[] validationRows,
+                       int threadCount) {
+        this.pruner = pruner;
+        this.compiledTree = compiledTree;
+        this.validation = dataSet;
+        this.validationRows = validationRows;
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * count the validation instances
+     * @return number of validation instances
+     */
+    private int validationSize() {
+        if (validationRows == null)
+            return validation.getSize();
+
+        int size = 0;
+        for (long word : validationRows)
+            size += Long.bitCount(word);
+        return size;
+    }
+
+    /**
+     * run trials until one of them is more accurate than the target or the trial limit is reached
+     * @param pruneNodeCount number of internal nodes pruned by every trial
+     * @param targetAccuracy validation accuracy a trial has to exceed
+     * @param maxTrials maximum number of trials
+     * @param seed seed of the search
+     * @return the first trial exceeding the target, otherwise the most accurate trial
+     */
+    public synchronized Result search(final int pruneNodeCount, double targetAccuracy, final int maxTrials,
+                                      final long seed) {
+        // compare counts instead of accuracies, a trial hits the target if correct / size > targetAccuracy
+        final int size = validationSize();
+        final double targetCorrect = targetAccuracy * size;
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.PRUNE);
+        nextTrial = new AtomicInteger(0);
+        firstHit = new AtomicInteger(Integer.MAX_VALUE);
+        bestTrial = -1;
+        bestCorrect = -1;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        runTrials(pruneNodeCount, targetCorrect, maxTrials, seed);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while searching a pruned tree", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("pruning trial failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int trial;
+        synchronized (bestLock) {
+            trial = firstHit.get() != Integer.MAX_VALUE ? firstHit.get() : bestTrial;
+        }
+        if (trial == -1) {
+            TrainingMetrics.end(timer, (long) Math.min(nextTrial.get(), maxTrials) * size);
+            return null;
+        }
+
+        long[] pruned = pruner.randomPrune(pruneNodeCount, SeedStreams.random(seed, trial), pruner.newSampleIds(),
+                pruner.newPrunedBits());
+        int correct = compiledTree.countCorrect(validation, pruned, validationRows);
+        TrainingMetrics.end(timer, (long) (Math.min(nextTrial.get(), maxTrials) + 1) * size);
+        return new Result(pruned, trial + 1, (double) correct / size);
+    }
+
+    /**
+     * loop of a worker thread: take the next trial until the search is finished
+     * @param pruneNodeCount number of internal nodes pruned by every trial
+     * @param targetCorrect number of correct predictions a trial has to exceed
+     * @param maxTrials maximum number of trials
+     * @param seed seed of the search
+     */
+    private void runTrials(int pruneNodeCount, double targetCorrect, int maxTrials, long seed) {
+        int[] sampleIds = pruner.newSampleIds();
+        long[] pruned = pruner.newPrunedBits();
+        while (true) {
+            int trial = nextTrial.getAndIncrement();
+            // trials after a hit can not change the result, trials before it still have to finish
+            if (trial >= maxTrials || trial > firstHit.get())
+                return;
+
+            pruner.randomPrune(pruneNodeCount, SeedStreams.random(seed, trial), sampleIds, pruned);
+            int correct = compiledTree.countCorrect(validation, pruned, validationRows);
+            if (correct > targetCorrect) {
+                int hit = firstHit.get();
+                while (trial < hit && !firstHit.compareAndSet(hit, trial))
+                    hit = firstHit.get();
+            }
+            offerBest(trial, correct);
+        }
+    }
+
+    /**
+     * remember the most accurate trial, ties go to the smaller trial number
+     * @param trial trial number
+     * @param correct number of correct predictions
+     */
+    private void offerBest(int trial, int correct) {
+        synchronized (bestLock) {
+            if (correct > bestCorrect || (correct == bestCorrect && trial < bestTrial)) {
+                bestCorrect = correct;
+                bestTrial = trial;
+            }
+        }
+    }
+
+    /**
+     * outcome of a search
+     */
+    public static class Result {
+        private long[] pruned;
+        private int trials;
+        private double accuracy;
+
+        Result(long[] pruned, int trials, double accuracy) {
+            this.pruned = pruned;
+            this.trials = trials;
+            this.accuracy = accuracy;
+        }
+
+        /**
+         * get the pruned node bitset of the chosen trial
+         * @return pruned node bitset
+         */
+        public long[] getPruned() {
+            return pruned;
+        }
+
+        /**
+         * get the number of the chosen trial, counting from 1
+         * @return trial number
+         */
+        public int getTrials() {
+            return trials;
+        }
+
+        /**
+         * get the validation accuracy of the chosen trial
+         * @return accuracy
+         */
+        public double getAccuracy() {
+            return accuracy;
+        }
+    }
+}
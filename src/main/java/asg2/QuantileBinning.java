@@ -0,0 +1,97 @@
+package asg2;
+
+import java.util.Arrays;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: maps the values of numeric attributes to quantile buckets. The bucket edges of every
+ * attribute are taken once from the training data, bucket b holds the values in (edges[b - 1], edges[b]]
+ * and the last bucket holds everything above the last edge. Validation and test data are binned with the
+ * edges of the training data, so a split "bucket <= b" means the same value range on every data set
+ */
+public class QuantileBinning {
+    public static final int MAX_BINS = 256; // bucket numbers are stored in one byte
+    private float[][] edges; // edges[attr], ascending upper edges of all buckets except the last one
+
+    private QuantileBinning(float[][] edges) {
+        this.edges = edges;
+    }
+
+    /**
+     * take quantile bucket edges from attribute columns
+     * @param columns attribute columns, columns[attr][row]
+     * @param size number of instances stored in the columns
+     * @param maxBins maximum number of buckets per attribute, between 2 and MAX_BINS
+     * @return binning
+     */
+    public static QuantileBinning fit(float[][] columns, int size, int maxBins) {
+        if (maxBins < 2 || maxBins > MAX_BINS)
+            throw new IllegalArgumentException("number of buckets has to be between 2 and " + MAX_BINS);
+
+        float[][] edges = new float[columns.length][];
+        for (int attr = 0; attr < columns.length; attr++) {
+            float[] sorted = Arrays.copyOf(columns[attr], size);
+            Arrays.sort(sorted);
+            float[] attrEdges = new float[maxBins - 1];
+            int count = 0;
+            for (int k = 1; k < maxBins && size > 0; k++) {
+                float edge = sorted[(int) ((long) k * size / maxBins)];
+                // repeated values share one bucket, and the maximum always falls into the last bucket
+                if (edge < sorted[size - 1] && (count == 0 || edge > attrEdges[count - 1]))
+                    attrEdges[count++] = edge;
+            }
+            edges[attr] = Arrays.copyOf(attrEdges, count);
+        }
+
+        return new QuantileBinning(edges);
+    }
+
+    /**
+     * get the number of attributes
+     * @return number of attributes
+     */
+    public int getAttrCount() {
+        return edges.length;
+    }
+
+    /**
+     * get the number of buckets of an attribute
+     * @param attr column position
+     * @return number of buckets
+     */
+    public int getBinCount(int attr) {
+        return edges[attr].length + 1;
+    }
+
+    /**
+     * find the bucket of a value
+     * @param attr column position
+     * @param value attribute value
+     * @return bucket number
+     */
+    public int bin(int attr, float value) {
+        float[] attrEdges = edges[attr];
+        int low = 0, high = attrEdges.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (value <= attrEdges[mid])
+                high = mid;
+            else
+                low = mid + 1;
+        }
+
+        return low;
+    }
+
+    /**
+     * get the largest value of a bucket, a split "value <= threshold" with this threshold sends the
+     * bucket and all lower buckets to the left
+     * @param attr column position
+     * @param bin bucket number, not the last bucket
+     * @return upper edge
+     */
+    public float getUpperEdge(int attr, int bin) {
+        return edges[attr][bin];
+    }
+}
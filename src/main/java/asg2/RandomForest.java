@@ -0,0 +1,231 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: bagged ensemble of ID3 trees. Every tree is built on a bootstrap sample of the shared training
+ * data set and may only split on a random subset of the attributes. A bootstrap sample is not a copy of the
+ * data: it is the array of drawn instance positions plus the bit planes of how often every instance was
+ * drawn, which TreeBuilder uses as instance weights. Trees are built concurrently, one tree per task, and
+ * tree i only depends on (seed, i). The ensemble predicts the majority vote of its trees
+ */
+public class RandomForest {
+    private int treeCount;
+    private double attrFraction; // fraction of the attributes available to one tree
+    private int threadCount;
+    private List<TreeNode> trees = new ArrayList<>();
+
+    /**
+     * constructor
+     * @param treeCount number of trees
+     * @param attrFraction fraction of the attributes a tree may split on, between 0 and 1
+     * @param threadCount number of threads building trees
+     */
+    public RandomForest(int treeCount, double attrFraction, int threadCount) {
+        if (treeCount < 1)
+            throw new IllegalArgumentException("a forest needs at least one tree");
+        if (attrFraction <= 0 || attrFraction > 1)
+            throw new IllegalArgumentException("attribute fraction has to be in (0, 1]");
+
+        this.treeCount = treeCount;
+        this.attrFraction = attrFraction;
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * build the trees of the forest
+     * @param dataSet training data set
+     * @param seed seed of the bootstrap samples and attribute subsets
+     */
+    public void train(final BinaryDataSet dataSet, final long seed) {
+        if (dataSet.getSize() == 0)
+            throw new IllegalArgumentException("training data set is empty");
+        if (dataSet.isMultiClass())
+            throw new IllegalArgumentException("the forest votes between two classes");
+
+        final double[] nLogN = SplitScorer.createTable(dataSet.getSize());
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<TreeNode>> futures = new ArrayList<>();
+            for (int i = 0; i < treeCount; i++) {
+                final int tree = i;
+                futures.add(executor.submit(new Callable<TreeNode>() {
+                    @Override
+                    public TreeNode call() {
+                        return buildTree(dataSet, nLogN, SeedStreams.random(seed, tree));
+                    }
+                }));
+            }
+
+            List<TreeNode> built = new ArrayList<>();
+            for (Future<TreeNode> future : futures)
+                built.add(future.get());
+            trees = built;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while building the forest", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("building a tree failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * build one tree on a bootstrap sample and a random attribute subset
+     * @param dataSet training data set
+     * @param nLogN n * log2(n) table shared by all trees
+     * @param random random number generator of the tree
+     * @return root node
+     */
+    private TreeNode buildTree(BinaryDataSet dataSet, double[] nLogN, Random random) {
+        int size = dataSet.getSize();
+        int[] weights = new int[size];
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            int row = random.nextInt(size);
+            if (weights[row]++ == 0)
+                distinct++;
+        }
+
+        int[] rows = new int[distinct];
+        int pos = 0;
+        for (int row = 0; row < size; row++) {
+            if (weights[row] > 0)
+                rows[pos++] = row;
+        }
+
+        // partial Fisher-Yates shuffle over the attributes, the first attrCount ones are kept
+        int attrCount = dataSet.getAttrCount();
+        int keep = Math.max(1, (int) Math.round(attrFraction * attrCount));
+        int[] attrs = new int[attrCount];
+        for (int i = 0; i < attrCount; i++)
+            attrs[i] = i;
+        boolean[] excludedAttrs = new boolean[attrCount];
+        for (int i = 0; i < attrCount; i++)
+            excludedAttrs[i] = true;
+        for (int i = 0; i < Math.min(keep, attrCount); i++) {
+            int j = i + random.nextInt(attrCount - i);
+            int attr = attrs[j];
+            attrs[j] = attrs[i];
+            attrs[i] = attr;
+            excludedAttrs[attr] = false;
+        }
+
+        TreeBuilder builder = new TreeBuilder(dataSet, 1, nLogN);
+        return builder.build(rows, SplitScorer.createWeightPlanes(weights), excludedAttrs);
+    }
+
+    /**
+     * get the trees of the forest
+     * @return root nodes
+     */
+    public List<TreeNode> getTrees() {
+        return trees;
+    }
+
+    /**
+     * count the votes of all trees for class 1
+     * @param dataSet data set containing the attributes of the trees
+     * @return number of trees predicting class 1 for every instance
+     */
+    public int[] countVotes(BinaryDataSet dataSet) {
+        if (trees.isEmpty())
+            throw new IllegalStateException("the forest is not trained");
+
+        int[] votes = new int[dataSet.getSize()];
+        for (TreeNode root : trees) {
+            long[] predictions = CompiledTree.compile(root, dataSet).predictBits(dataSet);
+            for (int w = 0; w < predictions.length; w++) {
+                long bits = predictions[w];
+                while (bits != 0) {
+                    votes[(w << 6) + Long.numberOfTrailingZeros(bits)]++;
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        return votes;
+    }
+
+    /**
+     * predict the class labels of a data set by majority vote, a tie predicts class 0 like a leaf node does
+     * @param dataSet data set containing the attributes of the trees
+     * @return 0 or 1 for every instance
+     */
+    public byte[] predict(BinaryDataSet dataSet) {
+        int[] votes = countVotes(dataSet);
+        byte[] labels = new byte[votes.length];
+        for (int row = 0; row < votes.length; row++)
+            labels[row] = (byte) (votes[row] > trees.size() - votes[row] ? 1 : 0);
+
+        return labels;
+    }
+
+    /**
+     * calculate the accuracy of the majority vote
+     * @param dataSet data set containing the attributes of the trees
+     * @return accuracy
+     */
+    public double calAccuracy(BinaryDataSet dataSet) {
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.EVALUATE);
+        byte[] labels = predict(dataSet);
+        int correct = 0;
+        for (int row = 0; row < labels.length; row++) {
+            if (labels[row] == dataSet.getLabel(row))
+                correct++;
+        }
+
+        TrainingMetrics.end(timer, (long) labels.length * trees.size());
+        return (double) correct / labels.length;
+    }
+
+    /**
+     * train a forest and compare it with a single tree
+     * @param args training, validation and test data set paths, optionally number of trees and attribute fraction
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: RandomForest <training set> <validation set> <test set> [trees] [attribute fraction]");
+            return;
+        }
+
+        int treeCount = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+        double attrFraction = args.length > 4 ? Double.parseDouble(args[4]) : 0.5;
+        try {
+            BinaryDataSet[] dataSets = new ParallelDataLoader().loadAll(args[0], args[1], args[2]);
+            for (int i = 1; i < dataSets.length; i++)
+                dataSets[i] = dataSets[i].withClassesOf(dataSets[0]);
+            long seed = Long.getLong("seed", System.nanoTime());
+            System.out.println("Random seed = " + seed);
+
+            long start = System.nanoTime();
+            RandomForest forest = new RandomForest(treeCount, attrFraction, Runtime.getRuntime().availableProcessors());
+            forest.train(dataSets[0], seed);
+            System.out.println("Built " + treeCount + " trees in " + (System.nanoTime() - start) / 1000000 + " ms");
+
+            TreeNode single = new TreeBuilder(dataSets[0]).build();
+            String[] names = {"training", "validation", "testing"};
+            for (int i = 0; i < dataSets.length; i++) {
+                double treeAccuracy = (double) CompiledTree.compile(single, dataSets[i]).countCorrect(dataSets[i])
+                        / dataSets[i].getSize();
+                System.out.println("Accuracy on the " + names[i] + " data set: single tree = " + treeAccuracy +
+                        ", forest = " + forest.calAccuracy(dataSets[i]));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package asg2;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: serve predictions of a saved TreeModel on a local socket. Every connection is handled by its
+ * own thread, it reads one request per line and writes one answer per line:
+ *   ATTRS           the attribute names a request has to list values for, comma separated
+ *   v1,v2,...,vn    attribute values in the order of ATTRS ("0" is 0, any other value is 1), answered with
+ *                   the predicted class label, 0 or 1 unless the model is multi-class. A model without split
+ *                   attributes answers any line
+ *   STATS           number of predictions, batches, throughput and p50 / p99 latency
+ * Requests of all connections go through one queue. A batcher thread takes the requests which arrived
+ * together, up to MAX_BATCH, packs them into a bit packed data set and scores 64 of them per word with the
+ * compiled tree. The batcher keeps one data set of MAX_BATCH instances and only rewrites the column words a
+ * batch uses. The same path is available in-process through predict
+ */
+public class ScoringServer {
+    private static final int MAX_BATCH = 4096;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private final String[] attrNames; // attribute order of a request
+    private final String[] classNames; // class labels by class code of a multi-class model, null for two classes
+    private final CompiledTree compiledTree; // compiled for data sets with the columns attrNames
+    private final long batchWaitNanos; // time the batcher waits for more requests after the first one
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong predictionCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private volatile boolean running = false;
+    private long startNanos;
+    private ServerSocket serverSocket;
+    private ExecutorService connections;
+    private final Set<Socket> openSockets = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+    private Thread acceptor;
+    private volatile Thread batcher; // written before running is set
+
+    /**
+     * one pending prediction
+     */
+    private static class Request {
+        final byte[] values;
+        final long arrivalNanos = System.nanoTime();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile int label = -1;
+
+        Request(byte[] values) {
+            this.values = values;
+        }
+    }
+
+    /**
+     * constructor
+     * @param model trained model
+     * @param batchWaitMicros time to wait for more requests after the first request of a batch, 0 scores
+     *                        whatever has arrived at once
+     */
+    public ScoringServer(TreeModel model, long batchWaitMicros) {
+        this.attrNames = model.getAttrNames();
+        this.classNames = model.getClassNames();
+        this.batchWaitNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, batchWaitMicros));
+        this.compiledTree = model.compile(pack(new long[attrNames.length][0], 0));
+    }
+
+    /**
+     * wrap packed attribute columns into a data set with the classes of the model
+     * @param columns packed attribute columns in the order of attrNames
+     * @param size number of instances
+     * @return data set
+     */
+    private BinaryDataSet pack(long[][] columns, int size) {
+        BinaryDataSet dataSet = new BinaryDataSet(attrNames, columns, new long[BinaryDataSet.wordCount(size)], size);
+        return classNames == null ? dataSet : dataSet.withClasses(classNames, true);
+    }
+
+    /**
+     * get the attribute names a request has to list values for
+     * @return attribute names in request order
+     */
+    public String[] getAttrNames() {
+        return attrNames.clone();
+    }
+
+    /**
+     * get the class labels a multi-class model predicts, by the class codes predict returns
+     * @return class labels, null for a model with two classes
+     */
+    public String[] getClassNames() {
+        return classNames == null ? null : classNames.clone();
+    }
+
+    /**
+     * start the batcher thread without listening on a socket, for in-process predictions
+     */
+    public synchronized void startBatcher() {
+        if (batcher != null)
+            return;
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runBatches();
+            }
+        }, "scoring-batcher");
+        thread.setDaemon(true);
+        // running is set last, so a predict which sees it running also sees the batcher
+        batcher = thread;
+        startNanos = System.nanoTime();
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * listen on a port of the loopback address
+     * @param port port, 0 for any free port
+     * @throws IOException if the port can not be bound
+     */
+    public synchronized void start(int port) throws IOException {
+        if (serverSocket != null)
+            throw new IllegalStateException("the server is already listening");
+
+        serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        connections = Executors.newCachedThreadPool();
+        startBatcher();
+        acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, "scoring-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * get the port the server listens on
+     * @return port, -1 if it does not listen
+     */
+    public synchronized int getPort() {
+        return serverSocket == null ? -1 : serverSocket.getLocalPort();
+    }
+
+    /**
+     * stop listening, close all connections and stop the batcher
+     */
+    public void stop() {
+        running = false;
+        synchronized (this) {
+            try {
+                if (serverSocket != null)
+                    serverSocket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            if (connections != null)
+                connections.shutdownNow();
+            for (Socket socket : openSockets) {
+                try {
+                    socket.close(); // wakes up the connection thread blocked in reading
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (batcher != null)
+                batcher.interrupt();
+        }
+    }
+
+    /**
+     * predict the class label of one instance, the calling thread waits until its batch has been scored
+     * @param values attribute values in the order of getAttrNames, 0 or 1
+     * @return 0 or 1, the class code of getClassNames for a multi-class model
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public int predict(byte[] values) throws InterruptedException {
+        if (values.length != attrNames.length)
+            throw new IllegalArgumentException("expected " + attrNames.length + " values, got " + values.length);
+        if (!running)
+            throw new IllegalStateException("the server is not running");
+
+        Request request = new Request(values);
+        queue.add(request);
+        Thread batcherThread = batcher;
+        while (!request.done.await(100, TimeUnit.MILLISECONDS)) {
+            if (!batcherThread.isAlive())
+                break; // stopped after the request was queued
+        }
+        if (request.label == -1)
+            throw new IllegalStateException("the server stopped before the request was scored");
+        return request.label;
+    }
+
+    /**
+     * accept connections until the server socket is closed, one thread per connection
+     */
+    private void acceptConnections() {
+        while (running) {
+            try {
+                final Socket socket = serverSocket.accept();
+                connections.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                });
+            } catch (SocketException e) {
+                return; // closed by stop
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * answer the requests of one connection until the client closes it
+     * @param socket connection
+     */
+    private void serve(Socket socket) {
+        openSockets.add(socket);
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), UTF_8))) {
+            s.setTcpNoDelay(true);
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty())
+                    continue;
+
+                out.write(answer(line));
+                out.write('\n');
+                // answers are flushed only when no request is waiting, so pipelined requests share a write
+                if (!in.ready())
+                    out.flush();
+            }
+        } catch (IOException e) {
+            if (running)
+                e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    /**
+     * answer one request line
+     * @param line request
+     * @return answer
+     * @throws InterruptedException if the thread is interrupted while waiting for its prediction
+     */
+    private String answer(String line) throws InterruptedException {
+        if (line.equals("ATTRS"))
+            return join(attrNames);
+        if (line.equals("STATS"))
+            return stats();
+
+        String[] fields = attrNames.length == 0 ? new String[0] : line.split(",", -1);
+        if (fields.length != attrNames.length)
+            return "ERROR expected " + attrNames.length + " values, got " + fields.length;
+
+        byte[] values = new byte[fields.length];
+        for (int i = 0; i < fields.length; i++)
+            values[i] = (byte) (fields[i].trim().equals("0") ? 0 : 1);
+        int label = predict(values);
+        return classNames == null ? String.valueOf(label) : classNames[label];
+    }
+
+    /**
+     * take batches from the queue and score them until the server stops
+     */
+    private void runBatches() {
+        List<Request> batch = new ArrayList<>();
+        // packed buffers of the batcher thread, reused by every batch
+        int words = BinaryDataSet.wordCount(MAX_BATCH);
+        long[][] columns = new long[attrNames.length][words];
+        BinaryDataSet packed = pack(columns, MAX_BATCH);
+        long[] predictions = new long[words];
+        short[] classPredictions = classNames == null ? null : new short[MAX_BATCH];
+        try {
+            while (running) {
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - batch.size());
+                long deadline = first.arrivalNanos + batchWaitNanos;
+                long remaining;
+                while (batch.size() < MAX_BATCH && (remaining = deadline - System.nanoTime()) > 0) {
+                    Request next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                    queue.drainTo(batch, MAX_BATCH - batch.size());
+                }
+
+                score(batch, packed, columns, predictions, classPredictions);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        } finally {
+            for (Request request : batch)
+                request.done.countDown();
+            Request request;
+            while ((request = queue.poll()) != null)
+                request.done.countDown();
+        }
+    }
+
+    /**
+     * score a batch with the bit parallel tree and wake up the waiting requests
+     * @param batch requests, at most MAX_BATCH
+     * @param packed data set of MAX_BATCH instances wrapping columns, instances beyond the batch are ignored
+     * @param columns packed attribute columns of packed, overwritten
+     * @param predictions receives the packed predictions, overwritten
+     * @param classPredictions receives the class codes predicted by a multi-class model, null for two classes
+     */
+    private void score(List<Request> batch, BinaryDataSet packed, long[][] columns, long[] predictions,
+                       short[] classPredictions) {
+        int size = batch.size();
+        int words = BinaryDataSet.wordCount(size);
+        for (long[] column : columns)
+            Arrays.fill(column, 0, words, 0L);
+        for (int row = 0; row < size; row++) {
+            byte[] values = batch.get(row).values;
+            for (int attr = 0; attr < values.length; attr++) {
+                if (values[attr] != 0)
+                    columns[attr][row >>> 6] |= 1L << row;
+            }
+        }
+
+        if (classPredictions != null)
+            compiledTree.predictClasses(packed, 0, words, classPredictions);
+        else
+            compiledTree.scoreBlock(packed, 0, words, predictions);
+        long now = System.nanoTime();
+        for (int row = 0; row < size; row++) {
+            Request request = batch.get(row);
+            request.label = classPredictions != null ? classPredictions[row]
+                    : (int) (predictions[row >>> 6] >>> row) & 1;
+            request.done.countDown();
+            latency.record(now - request.arrivalNanos);
+            if (TrainingMetrics.ENABLED)
+                TrainingMetrics.recordPrediction(now - request.arrivalNanos);
+        }
+        predictionCount.addAndGet(size);
+        batchCount.incrementAndGet();
+    }
+
+    /**
+     * summarise the served predictions
+     * @return statistics line
+     */
+    public String stats() {
+        long predictions = predictionCount.get();
+        long batches = batchCount.get();
+        double seconds = running ? (System.nanoTime() - startNanos) / 1e9 : 0;
+        return "predictions=" + predictions + " batches=" + batches +
+                " avgBatch=" + (batches == 0 ? 0 : predictions / batches) +
+                " throughput=" + (seconds == 0 ? 0 : (long) (predictions / seconds)) + "/s" +
+                " p50<=" + latency.percentileMicros(0.5) + "us" +
+                " p99<=" + latency.percentileMicros(0.99) + "us";
+    }
+
+    /**
+     * join names with commas
+     * @param names names
+     * @return comma separated names
+     */
+    private static String join(String[] names) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append(names[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * serve a saved model until the process is stopped
+     * @param args model file path, optionally port and batch wait in microseconds
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: ScoringServer <model file> [port] [batch wait in microseconds]");
+            return;
+        }
+
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7070;
+        long batchWaitMicros = args.length > 2 ? Long.parseLong(args[2]) : 50;
+        try {
+            final ScoringServer server = new ScoringServer(TreeModel.load(args[0]), batchWaitMicros);
+            server.start(port);
+            System.out.println("Serving " + args[0] + " on localhost:" + server.getPort() +
+                    ", attributes: " + join(server.attrNames));
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    System.out.println(server.stats());
+                    server.stop();
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
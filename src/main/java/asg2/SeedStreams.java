@@ -0,0 +1,38 @@
+package asg2;
+
+import java.util.Random;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: independent random streams derived from one seed, e.g. one per pruning trial, forest tree or
+ * cross-validation run, so parallel work is reproducible whatever the order in which it runs
+ */
+final class SeedStreams {
+    private SeedStreams() {
+    }
+
+    /**
+     * derive the seed of a stream
+     * @param seed base seed
+     * @param stream stream number
+     * @return seed of the stream
+     */
+    static long seed(long seed, long stream) {
+        // SplitMix64 finaliser, so neighbouring streams get unrelated seeds
+        long z = seed + (stream + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * create the random number generator of a stream
+     * @param seed base seed
+     * @param stream stream number
+     * @return random number generator
+     */
+    static Random random(long seed, long stream) {
+        return new Random(seed(seed, stream));
+    }
+}
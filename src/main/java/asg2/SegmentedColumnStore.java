@@ -0,0 +1,344 @@
+package asg2;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: bit packed binary columns of a data set which does not fit on the heap, stored on disk in
+ * segments of consecutive instances. A segment holds the packed words of every attribute column followed by
+ * the packed class labels, for segmentRows instances, so it can be written as soon as its lines of the csv
+ * file are read and mapped on its own while streaming over the data. Only one segment is on the heap while
+ * a csv file is converted, attribute value and class label "0" are stored as 0 and any other value as 1.
+ * Layout (big endian): magic, version, instances per segment, instance count, attribute count, attribute
+ * names (length + UTF-8 bytes), padding to 8 bytes, segments. Every segment but the last one is full, the
+ * columns of the last one have wordCount(its instances) words
+ */
+public class SegmentedColumnStore {
+    private static final int MAGIC = 0x42435331; // "BCS1"
+    private static final int VERSION = 1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private final File storeFile;
+    private final String[] attrNames;
+    private final int segmentRows;
+    private final long size;
+    private final long dataOffset; // byte offset of the first segment
+
+    /**
+     * one mapped segment
+     */
+    static final class Segment {
+        private final LongBuffer words;
+        private final int wordCount; // words per column
+        private final int size;
+
+        private Segment(LongBuffer words, int wordCount, int size) {
+            this.words = words;
+            this.wordCount = wordCount;
+            this.size = size;
+        }
+
+        /**
+         * get the number of instances of the segment
+         * @return number of instances
+         */
+        int getSize() {
+            return size;
+        }
+
+        /**
+         * get the number of words of every column
+         * @return words per column
+         */
+        int getWordCount() {
+            return wordCount;
+        }
+
+        /**
+         * get a packed word of a column
+         * @param column column position, the attribute count for the class labels
+         * @param w word position in the segment
+         * @return word, bit i stands for instance w * 64 + i of the segment
+         */
+        long word(int column, int w) {
+            return words.get(column * wordCount + w);
+        }
+    }
+
+    private SegmentedColumnStore(File storeFile, String[] attrNames, int segmentRows, long size, long dataOffset) {
+        this.storeFile = storeFile;
+        this.attrNames = attrNames;
+        this.segmentRows = segmentRows;
+        this.size = size;
+        this.dataOffset = dataOffset;
+    }
+
+    /**
+     * convert a csv file into a store, one segment at a time. The store is written to a temporary file of its
+     * own first and moved over the store afterwards so that a reader never sees a partial store
+     * @param csvPath csv file path
+     * @param storePath store file path
+     * @param segmentRows instances per segment, rounded up to a multiple of 64
+     * @return store
+     * @throws IOException if the csv file can not be read, an instance is malformed or the store can not be
+     *                     written
+     */
+    public static SegmentedColumnStore convert(String csvPath, String storePath, int segmentRows) throws IOException {
+        segmentRows = BinaryDataSet.wordCount(Math.max(1, segmentRows)) * 64;
+        File storeFile = new File(storePath);
+        File tmpFile = BinaryFiles.createTempFile(storeFile);
+        String[] attrNames;
+        long size = 0, dataOffset;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(csvPath), UTF_8));
+             RandomAccessFile file = new RandomAccessFile(tmpFile, "rw");
+             FileChannel channel = file.getChannel()) {
+            String line = br.readLine();
+            if (line == null)
+                throw new IOException(csvPath + " is empty");
+
+            String[] header = line.split(",");
+            attrNames = new String[header.length - 1]; // 'Class' is excluded
+            System.arraycopy(header, 0, attrNames, 0, attrNames.length);
+            int words = segmentRows / 64;
+            if ((long) header.length * words * 8 > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("a segment of " + segmentRows + " instances can not be mapped");
+
+            int headerSize = 24;
+            byte[][] names = new byte[attrNames.length][];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = attrNames[i].getBytes(UTF_8);
+                headerSize += 4 + names[i].length;
+            }
+            dataOffset = BinaryFiles.align(headerSize);
+            ByteBuffer headerBuffer = ByteBuffer.allocate((int) dataOffset);
+            headerBuffer.putInt(MAGIC).putInt(VERSION).putInt(segmentRows).putLong(0).putInt(names.length);
+            for (byte[] name : names)
+                headerBuffer.putInt(name.length).put(name);
+            headerBuffer.position(0);
+            writeFully(channel, headerBuffer, 0);
+
+            long[][] columns = new long[header.length][words]; // attributes, then class labels
+            int rows = 0;
+            long offset = dataOffset;
+            while ((line = br.readLine()) != null) {
+                if (line.isEmpty())
+                    continue;
+
+                String[] fields = line.split(",");
+                if (fields.length != header.length)
+                    throw new IOException("instance " + (size + 1) + " of " + csvPath + " has " + fields.length +
+                            " fields, expected " + header.length);
+                for (int i = 0; i < fields.length; i++) {
+                    if (!fields[i].equals("0"))
+                        columns[i][rows >>> 6] |= 1L << rows;
+                }
+                size++;
+                if (++rows == segmentRows) {
+                    offset = writeSegment(channel, columns, rows, offset);
+                    rows = 0;
+                }
+            }
+            if (rows > 0)
+                writeSegment(channel, columns, rows, offset);
+
+            ByteBuffer sizeBuffer = ByteBuffer.allocate(8);
+            sizeBuffer.putLong(size).flip();
+            writeFully(channel, sizeBuffer, 12);
+        } catch (IOException | RuntimeException e) {
+            tmpFile.delete();
+            throw e;
+        }
+
+        BinaryFiles.replace(tmpFile, storeFile);
+        return new SegmentedColumnStore(storeFile, attrNames, segmentRows, size, dataOffset);
+    }
+
+    /**
+     * open an existing store
+     * @param storePath store file path
+     * @return store
+     * @throws IOException if the file can not be read or is not a store
+     */
+    public static SegmentedColumnStore open(String storePath) throws IOException {
+        File storeFile = new File(storePath);
+        try (RandomAccessFile file = new RandomAccessFile(storeFile, "r");
+             FileChannel channel = file.getChannel()) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 1 << 24));
+            if (header.remaining() < 24 || header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException(storePath + " is not a column store");
+
+            int segmentRows = header.getInt();
+            long size = header.getLong();
+            String[] attrNames = new String[header.getInt()];
+            for (int i = 0; i < attrNames.length; i++) {
+                byte[] bytes = new byte[header.getInt()];
+                header.get(bytes);
+                attrNames[i] = new String(bytes, UTF_8);
+            }
+
+            SegmentedColumnStore store = new SegmentedColumnStore(storeFile, attrNames, segmentRows, size,
+                    BinaryFiles.align(header.position()));
+            int last = store.getSegmentCount() - 1;
+            if (last >= 0 && channel.size() < store.segmentOffset(last) + store.segmentBytes(last))
+                throw new IOException(storePath + " is truncated");
+            return store;
+        }
+    }
+
+    /**
+     * get the number of instances
+     * @return number of instances
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * get the number of attributes
+     * @return number of attributes
+     */
+    public int getAttrCount() {
+        return attrNames.length;
+    }
+
+    /**
+     * get attribute name by column position
+     * @param attr column position
+     * @return attribute name
+     */
+    public String getAttrName(int attr) {
+        return attrNames[attr];
+    }
+
+    /**
+     * get the attribute names in column order
+     * @return attribute names
+     */
+    public String[] getAttrNames() {
+        return attrNames.clone();
+    }
+
+    /**
+     * get the number of instances of a full segment
+     * @return instances per segment, a multiple of 64
+     */
+    public int getSegmentRows() {
+        return segmentRows;
+    }
+
+    /**
+     * get the number of segments
+     * @return number of segments
+     */
+    public int getSegmentCount() {
+        return (int) ((size + segmentRows - 1) / segmentRows);
+    }
+
+    /**
+     * get the number of instances of a segment
+     * @param segment segment number
+     * @return number of instances
+     */
+    public int getSegmentSize(int segment) {
+        return (int) Math.min(segmentRows, size - (long) segment * segmentRows);
+    }
+
+    /**
+     * map a segment read only, the mapping is released by the garbage collector
+     * @param segment segment number
+     * @return mapped segment
+     * @throws IOException if the file can not be read
+     */
+    Segment map(int segment) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(storeFile, "r");
+             FileChannel channel = file.getChannel()) {
+            int segmentSize = getSegmentSize(segment);
+            LongBuffer words = channel.map(FileChannel.MapMode.READ_ONLY, segmentOffset(segment),
+                    segmentBytes(segment)).asLongBuffer();
+            return new Segment(words, BinaryDataSet.wordCount(segmentSize), segmentSize);
+        }
+    }
+
+    /**
+     * copy a segment into a data set on the heap, e.g. to score it with a CompiledTree
+     * @param segment segment number
+     * @return data set of the instances of the segment
+     * @throws IOException if the file can not be read
+     */
+    public BinaryDataSet readSegment(int segment) throws IOException {
+        Segment mapped = map(segment);
+        int words = mapped.getWordCount();
+        long[][] columns = new long[attrNames.length][words];
+        long[] labels = new long[words];
+        for (int w = 0; w < words; w++) {
+            for (int attr = 0; attr < attrNames.length; attr++)
+                columns[attr][w] = mapped.word(attr, w);
+            labels[w] = mapped.word(attrNames.length, w);
+        }
+
+        return new BinaryDataSet(attrNames, columns, labels, mapped.getSize());
+    }
+
+    /**
+     * get the byte offset of a segment
+     * @param segment segment number
+     * @return offset
+     */
+    private long segmentOffset(int segment) {
+        return dataOffset + (long) segment * (attrNames.length + 1) * (segmentRows / 64) * 8;
+    }
+
+    /**
+     * get the number of bytes of a segment
+     * @param segment segment number
+     * @return number of bytes
+     */
+    private long segmentBytes(int segment) {
+        return (long) (attrNames.length + 1) * BinaryDataSet.wordCount(getSegmentSize(segment)) * 8;
+    }
+
+    /**
+     * append a segment and clear the column buffers
+     * @param channel file channel
+     * @param columns packed attribute columns followed by the packed class labels
+     * @param rows number of instances in the buffers
+     * @param offset byte offset of the segment
+     * @return byte offset of the next segment
+     * @throws IOException if the file can not be written
+     */
+    private static long writeSegment(FileChannel channel, long[][] columns, int rows, long offset)
+            throws IOException {
+        int words = BinaryDataSet.wordCount(rows);
+        ByteBuffer buffer = ByteBuffer.allocate(columns.length * words * 8);
+        LongBuffer longBuffer = buffer.asLongBuffer();
+        for (long[] column : columns) {
+            longBuffer.put(column, 0, words);
+            Arrays.fill(column, 0L);
+        }
+        writeFully(channel, buffer, offset);
+
+        return offset + buffer.capacity();
+    }
+
+    /**
+     * write the remaining bytes of a buffer at a position
+     * @param channel file channel
+     * @param buffer buffer
+     * @param position byte offset in the file
+     * @throws IOException if the file can not be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+    }
+}
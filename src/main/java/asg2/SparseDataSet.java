@@ -0,0 +1,257 @@
+package asg2;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: data set of binary attributes which are mostly 0, stored as the sorted positions of the
+ * instances whose value is 1, one list per attribute (compressed sparse columns). It is read from a LibSVM
+ * file, one instance per line:
+ *   label index:value index:value ...
+ * Indices start at 1 and name the attributes, an index which does not appear on a line is 0, a value other
+ * than 0 is stored as 1. A label greater than 0 is class 1, any other label (0 or -1) is class 0.
+ * The rows of the file (compressed sparse rows) are kept as well and transposed into the columns after
+ * reading, so a split search can go through the attributes of the instances of a node or through the
+ * instances of an attribute. Memory grows with the number of non-zero values, not rows times attributes
+ */
+public class SparseDataSet {
+    private String[] attrNames; // attribute at column position i is named by its index i + 1
+    private int[] columnStart; // the instances of column i are rowIndex[columnStart[i], columnStart[i + 1])
+    private int[] rowIndex; // instance positions with value 1, ascending within a column
+    private int[] rowStart; // the columns of row i with value 1 are columnIndex[rowStart[i], rowStart[i + 1])
+    private int[] columnIndex; // column positions with value 1, ascending within a row
+    private long[] labels; // bit set means class 1
+    private int size;
+    private Map<String, Integer> attrIndexMap; // attribute name --> column position
+
+    private SparseDataSet(int attrCount, int[] columnStart, int[] rowIndex, int[] rowStart, int[] columnIndex,
+                          long[] labels, int size) {
+        this.columnStart = columnStart;
+        this.rowIndex = rowIndex;
+        this.rowStart = rowStart;
+        this.columnIndex = columnIndex;
+        this.labels = labels;
+        this.size = size;
+
+        attrNames = new String[attrCount];
+        attrIndexMap = new HashMap<>();
+        for (int i = 0; i < attrCount; i++) {
+            attrNames[i] = String.valueOf(i + 1);
+            attrIndexMap.put(attrNames[i], i);
+        }
+    }
+
+    /**
+     * load a training file, the number of attributes is the largest index of the file
+     * @param path LibSVM file path
+     * @return data set
+     * @throws IOException if the file can not be read or an instance is malformed
+     */
+    public static SparseDataSet load(String path) throws IOException {
+        return load(path, -1);
+    }
+
+    /**
+     * load a validation or test file with the attributes of the training data set, indices beyond them are
+     * ignored because the tree can not split on them
+     * @param path LibSVM file path
+     * @param training training data set
+     * @return data set
+     * @throws IOException if the file can not be read or an instance is malformed
+     */
+    public static SparseDataSet load(String path, SparseDataSet training) throws IOException {
+        return load(path, training.getAttrCount());
+    }
+
+    /**
+     * read a LibSVM file row by row and transpose it into columns
+     * @param path LibSVM file path
+     * @param attrCount number of attributes, -1 to take the largest index
+     * @return data set
+     * @throws IOException if the file can not be read or an instance is malformed
+     */
+    private static SparseDataSet load(String path, int attrCount) throws IOException {
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.LOAD);
+        int[] rowStart = new int[1025]; // the columns of row i are columns[rowStart[i], rowStart[i + 1])
+        int[] columns = new int[4096];
+        long[] labels = new long[BinaryDataSet.wordCount(1024)];
+        int size = 0, nonZeros = 0, maxIndex = 0;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(path),
+                Charset.forName("UTF-8")))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                int comment = line.indexOf('#');
+                if (comment >= 0)
+                    line = line.substring(0, comment);
+                line = line.trim();
+                if (line.isEmpty())
+                    continue;
+
+                String[] fields = line.split("\\s+");
+                if (size + 1 == rowStart.length) {
+                    rowStart = Arrays.copyOf(rowStart, rowStart.length * 2);
+                    labels = Arrays.copyOf(labels, BinaryDataSet.wordCount(rowStart.length));
+                }
+                try {
+                    if (Double.parseDouble(fields[0]) > 0)
+                        labels[size >>> 6] |= 1L << size;
+
+                    int previous = 0;
+                    for (int i = 1; i < fields.length; i++) {
+                        int colon = fields[i].indexOf(':');
+                        if (colon < 0)
+                            throw new IOException("instance " + (size + 1) + " of " + path + " has a field " +
+                                    fields[i] + " without ':'");
+                        int index = Integer.parseInt(fields[i].substring(0, colon));
+                        if (index <= previous)
+                            throw new IOException("instance " + (size + 1) + " of " + path +
+                                    " does not have ascending indices starting at 1");
+                        previous = index;
+                        if (Double.parseDouble(fields[i].substring(colon + 1)) == 0 ||
+                                (attrCount >= 0 && index > attrCount))
+                            continue;
+
+                        if (nonZeros == columns.length)
+                            columns = Arrays.copyOf(columns, nonZeros * 2);
+                        columns[nonZeros++] = index - 1;
+                        maxIndex = Math.max(maxIndex, index);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("instance " + (size + 1) + " of " + path + " has a non numeric value", e);
+                }
+                rowStart[++size] = nonZeros;
+            }
+        }
+
+        if (attrCount < 0)
+            attrCount = maxIndex;
+        // transpose: count the values of every column, then place the rows in ascending order
+        int[] columnStart = new int[attrCount + 1];
+        for (int i = 0; i < nonZeros; i++)
+            columnStart[columns[i] + 1]++;
+        for (int attr = 0; attr < attrCount; attr++)
+            columnStart[attr + 1] += columnStart[attr];
+        int[] next = Arrays.copyOf(columnStart, attrCount);
+        int[] rowIndex = new int[nonZeros];
+        for (int row = 0; row < size; row++) {
+            for (int i = rowStart[row]; i < rowStart[row + 1]; i++)
+                rowIndex[next[columns[i]]++] = row;
+        }
+
+        TrainingMetrics.end(timer, size);
+        return new SparseDataSet(attrCount, columnStart, rowIndex, Arrays.copyOf(rowStart, size + 1),
+                Arrays.copyOf(columns, nonZeros), Arrays.copyOf(labels, BinaryDataSet.wordCount(size)), size);
+    }
+
+    /**
+     * get the number of instances
+     * @return number of instances
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * get the number of attributes
+     * @return number of attributes
+     */
+    public int getAttrCount() {
+        return attrNames.length;
+    }
+
+    /**
+     * get the number of attribute values which are 1
+     * @return number of non-zero values
+     */
+    public int getNonZeroCount() {
+        return rowIndex.length;
+    }
+
+    /**
+     * get attribute name by column position
+     * @param attr column position
+     * @return attribute name, the LibSVM index
+     */
+    public String getAttrName(int attr) {
+        return attrNames[attr];
+    }
+
+    /**
+     * get column position by attribute name
+     * @param attrName attribute name
+     * @return column position, -1 if the attribute does not exist
+     */
+    public int getAttrIndex(String attrName) {
+        Integer index = attrIndexMap.get(attrName);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * get attribute value of an instance by a binary search in the row
+     * @param attr column position
+     * @param row instance position
+     * @return 0 or 1
+     */
+    public int getValue(int attr, int row) {
+        return Arrays.binarySearch(columnIndex, rowStart[row], rowStart[row + 1], attr) >= 0 ? 1 : 0;
+    }
+
+    /**
+     * get class label of an instance
+     * @param row instance position
+     * @return 0 or 1
+     */
+    public int getLabel(int row) {
+        return (int) (labels[row >>> 6] >>> row) & 1;
+    }
+
+    /**
+     * get the packed class labels, the array must not be modified
+     * @return labels, bit set means class 1
+     */
+    long[] getLabelColumn() {
+        return labels;
+    }
+
+    /**
+     * get the start of every column in getRowIndex, followed by the number of non-zero values, the array
+     * must not be modified
+     * @return column starts
+     */
+    int[] getColumnStart() {
+        return columnStart;
+    }
+
+    /**
+     * get the instance positions with value 1 of all columns, the array must not be modified
+     * @return row indices, ascending within a column
+     */
+    int[] getRowIndex() {
+        return rowIndex;
+    }
+
+    /**
+     * get the start of every row in getColumnIndex, followed by the number of non-zero values, the array
+     * must not be modified
+     * @return row starts
+     */
+    int[] getRowStart() {
+        return rowStart;
+    }
+
+    /**
+     * get the column positions with value 1 of all rows, the array must not be modified
+     * @return column indices, ascending within a row
+     */
+    int[] getColumnIndex() {
+        return columnIndex;
+    }
+}
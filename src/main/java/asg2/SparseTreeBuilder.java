@@ -0,0 +1,349 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: build an ID3 decision tree on a SparseDataSet, the split search only touches values which are
+ * 1. A node keeps, for every attribute, the number of its instances with value 1 and of those in class 1;
+ * the counts of value 0 are the node totals minus these, and an attribute which is 0 for all instances of a
+ * node has no gain, so only the attributes present in the node are scored. As in HistogramTreeBuilder only
+ * the smaller child is counted, from the non-zero values of its instances, and the larger child gets the
+ * parent counts minus the smaller child's in the parent's arrays. An instance is counted only when it goes
+ * to the smaller child, at most log2(n) times, so building grows with the number of non-zero values and not
+ * with rows times attributes, even for a long chain of nodes which each split off a few instances.
+ * Instances are assigned to nodes by a row --> node array, the instances of the smaller child are found in
+ * the split attribute's column when that is shorter than the node's instance list. Nodes are processed
+ * with an explicit stack and scored by SplitScorer.binaryGain with ties going to the first attribute, the
+ * same choice TreeBuilder makes
+ */
+public class SparseTreeBuilder {
+    private SparseDataSet dataSet;
+    private double[] nLogN;
+    private int[] nodeOf; // node number of the node every instance belongs to, a larger child keeps its parent's
+    private int nodeNumbers = 0; // node numbers handed out, a smaller child gets a new one
+    // counts by number of smaller child steps from the root, a subtree only uses the counts of larger steps
+    private List<Counts> countPool = new ArrayList<>();
+    private int nodeCount = 0;
+    private int leafCount = 0;
+    private long countedValues = 0; // non-zero values counted
+    private long splitEvaluations = 0; // scored candidates, only counted with metrics
+
+    /**
+     * per attribute counts of the instances of a node whose value is 1
+     */
+    private static class Counts {
+        final int[] valueOne; // instances with value 1 by attribute
+        final int[] valueOneOne; // class 1 instances with value 1 by attribute
+        final int[] attrs; // attributes whose count may be above 0, every attribute with a count above 0 is listed
+        int attrCount = 0;
+
+        Counts(int attrCount) {
+            valueOne = new int[attrCount];
+            valueOneOne = new int[attrCount];
+            attrs = new int[attrCount];
+        }
+    }
+
+    /**
+     * a node waiting to be split
+     */
+    private static class Task {
+        TreeNode node;
+        int number; // node number in nodeOf
+        int[] rows; // the node's instances, instances which moved to a smaller child are skipped
+        int rowCount; // length of the list in rows
+        int count; // number of instances
+        int countOne; // number of class 1 instances
+        int steps; // smaller child steps from the root, position of the node's counts in countPool
+
+        Task(TreeNode node, int number, int[] rows, int rowCount, int count, int countOne, int steps) {
+            this.node = node;
+            this.number = number;
+            this.rows = rows;
+            this.rowCount = rowCount;
+            this.count = count;
+            this.countOne = countOne;
+            this.steps = steps;
+        }
+    }
+
+    /**
+     * constructor
+     * @param dataSet training data set
+     */
+    public SparseTreeBuilder(SparseDataSet dataSet) {
+        this.dataSet = dataSet;
+        this.nLogN = SplitScorer.createTable(dataSet.getSize());
+    }
+
+    /**
+     * build a tree using all instances and all attributes of the data set
+     * @return root node, null if the data set is empty
+     */
+    public TreeNode build() {
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.BUILD);
+        int size = dataSet.getSize();
+        nodeCount = 0;
+        leafCount = 0;
+        countedValues = 0;
+        splitEvaluations = 0;
+        if (size == 0) {
+            TrainingMetrics.endBuild(timer, null, 0, 0);
+            return null;
+        }
+
+        // the root counts come straight from the column lengths
+        long[] labels = dataSet.getLabelColumn();
+        int[] columnStart = dataSet.getColumnStart();
+        int[] rowIndex = dataSet.getRowIndex();
+        Counts rootCounts = counts(0);
+        for (int attr = 0; attr < dataSet.getAttrCount(); attr++) {
+            for (int i = columnStart[attr]; i < columnStart[attr + 1]; i++)
+                rootCounts.valueOneOne[attr] += (int) (labels[rowIndex[i] >>> 6] >>> rowIndex[i]) & 1;
+            rootCounts.valueOne[attr] = columnStart[attr + 1] - columnStart[attr];
+            if (rootCounts.valueOne[attr] > 0)
+                rootCounts.attrs[rootCounts.attrCount++] = attr;
+        }
+        countedValues += dataSet.getNonZeroCount();
+
+        nodeOf = new int[size]; // every instance starts at the root, node number 0
+        nodeNumbers = 1;
+        int[] rows = new int[size];
+        int countOne = 0;
+        for (int row = 0; row < size; row++) {
+            rows[row] = row;
+            countOne += (int) (labels[row >>> 6] >>> row) & 1;
+        }
+        TreeNode root = new TreeNode(-1, 0, null, null, 0, 0);
+        Deque<Task> stack = new ArrayDeque<>();
+        stack.push(new Task(root, 0, rows, size, size, countOne, 0));
+        while (!stack.isEmpty())
+            split(stack.pop(), stack);
+
+        nodeOf = null;
+        countPool.clear();
+        int[] nodeCounts = DecisionTreeID3.assignIds(root);
+        nodeCount = nodeCounts[0];
+        leafCount = nodeCounts[1];
+        TrainingMetrics.endBuild(timer, root, splitEvaluations, countedValues);
+        return root;
+    }
+
+    /**
+     * get the number of nodes of the last built tree
+     * @return number of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * get the number of leaf nodes of the last built tree
+     * @return number of leaf nodes
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * get the number of non-zero values the last build counted, the values of the root plus those of every
+     * smaller child
+     * @return number of counted values
+     */
+    public long getCountedValues() {
+        return countedValues;
+    }
+
+    /**
+     * get the counts at a number of smaller child steps, created when first used
+     * @param steps smaller child steps from the root
+     * @return counts
+     */
+    private Counts counts(int steps) {
+        while (countPool.size() <= steps)
+            countPool.add(new Counts(dataSet.getAttrCount()));
+
+        return countPool.get(steps);
+    }
+
+    /**
+     * choose the split of a node, count its smaller child and push both children, the smaller one on top so
+     * its subtree is done before the larger child's counts could be overwritten
+     * @param task node
+     * @param stack nodes waiting to be split
+     */
+    private void split(Task task, Deque<Task> stack) {
+        Counts counts = countPool.get(task.steps);
+        int count = task.count, countOne = task.countOne;
+        int splitAttr = -1;
+        if (countOne != 0 && countOne != count) {
+            // the attributes are not in order, so ties are resolved explicitly to the first attribute
+            double gainMax = 1e-9 * count;
+            int kept = 0;
+            for (int i = 0; i < counts.attrCount; i++) {
+                int attr = counts.attrs[i];
+                if (counts.valueOne[attr] == 0)
+                    continue; // all instances with value 1 went to smaller children
+                counts.attrs[kept++] = attr;
+
+                double gain = SplitScorer.binaryGain(nLogN, count, countOne, counts.valueOne[attr],
+                        counts.valueOneOne[attr]);
+                if (gain > gainMax || (gain == gainMax && splitAttr != -1 && attr < splitAttr)) {
+                    gainMax = gain;
+                    splitAttr = attr;
+                }
+            }
+            counts.attrCount = kept;
+            if (TrainingMetrics.ENABLED)
+                splitEvaluations += kept;
+        }
+
+        fillNode(task.node, splitAttr, count - countOne, countOne);
+        if (splitAttr == -1)
+            return;
+
+        int valueOne = counts.valueOne[splitAttr], valueOneOne = counts.valueOneOne[splitAttr];
+        boolean rightSmaller = valueOne <= count - valueOne;
+        int smallCount = rightSmaller ? valueOne : count - valueOne;
+        int smallOne = rightSmaller ? valueOneOne : countOne - valueOneOne;
+        int smallNumber = nodeNumbers++;
+        int[] smallRows = takeSmaller(task, splitAttr, rightSmaller, smallCount, smallNumber);
+
+        // count the smaller child, the larger child is the parent minus the smaller child
+        Counts smallCounts = counts(task.steps + 1);
+        for (int i = 0; i < smallCounts.attrCount; i++) {
+            smallCounts.valueOne[smallCounts.attrs[i]] = 0;
+            smallCounts.valueOneOne[smallCounts.attrs[i]] = 0;
+        }
+        smallCounts.attrCount = 0;
+        long[] labels = dataSet.getLabelColumn();
+        int[] rowStart = dataSet.getRowStart();
+        int[] columnIndex = dataSet.getColumnIndex();
+        for (int row : smallRows) {
+            int label = (int) (labels[row >>> 6] >>> row) & 1;
+            for (int i = rowStart[row]; i < rowStart[row + 1]; i++) {
+                int attr = columnIndex[i];
+                if (smallCounts.valueOne[attr]++ == 0)
+                    smallCounts.attrs[smallCounts.attrCount++] = attr;
+                smallCounts.valueOneOne[attr] += label;
+            }
+            countedValues += rowStart[row + 1] - rowStart[row];
+        }
+        for (int i = 0; i < smallCounts.attrCount; i++) {
+            int attr = smallCounts.attrs[i];
+            counts.valueOne[attr] -= smallCounts.valueOne[attr];
+            counts.valueOneOne[attr] -= smallCounts.valueOneOne[attr];
+        }
+
+        TreeNode node = task.node;
+        node.left = new TreeNode(-1, node.height + 1, null, null, 0, 0);
+        node.right = new TreeNode(-1, node.height + 1, null, null, 0, 0);
+        Task small = new Task(rightSmaller ? node.right : node.left, smallNumber, smallRows, smallCount, smallCount,
+                smallOne, task.steps + 1);
+        task.node = rightSmaller ? node.left : node.right;
+        task.count = count - smallCount;
+        task.countOne = countOne - smallOne;
+        stack.push(task);
+        stack.push(small);
+    }
+
+    /**
+     * move the instances of the smaller child of a split to a new node number
+     * @param task node being split
+     * @param splitAttr column position of split attribute
+     * @param valueOne true if the smaller child is the one of value 1
+     * @param smallCount number of instances of the smaller child
+     * @param smallNumber node number of the smaller child
+     * @return instances of the smaller child
+     */
+    private int[] takeSmaller(Task task, int splitAttr, boolean valueOne, int smallCount, int smallNumber) {
+        int[] small = new int[smallCount];
+        int k = 0;
+        int[] columnStart = dataSet.getColumnStart();
+        if (valueOne && columnStart[splitAttr + 1] - columnStart[splitAttr] <= task.rowCount) {
+            int[] rowIndex = dataSet.getRowIndex();
+            for (int i = columnStart[splitAttr]; i < columnStart[splitAttr + 1]; i++) {
+                if (nodeOf[rowIndex[i]] == task.number)
+                    small[k++] = rowIndex[i];
+            }
+        } else {
+            // go through the node's list and drop the instances which are not in the node any more
+            int kept = 0;
+            for (int i = 0; i < task.rowCount; i++) {
+                int row = task.rows[i];
+                if (nodeOf[row] != task.number)
+                    continue;
+
+                if ((dataSet.getValue(splitAttr, row) == 1) == valueOne)
+                    small[k++] = row;
+                else
+                    task.rows[kept++] = row;
+            }
+            task.rowCount = kept;
+        }
+
+        for (int row : small)
+            nodeOf[row] = smallNumber;
+        return small;
+    }
+
+    /**
+     * fill in a node of the level once it has been counted
+     * @param node node
+     * @param splitAttr column position of split attribute, -1 for a leaf node
+     * @param countZero number of class zero instances
+     * @param countOne number of class one instances
+     */
+    private void fillNode(TreeNode node, int splitAttr, int countZero, int countOne) {
+        node.labelZeroCount = countZero;
+        node.labelOneCount = countOne;
+        if (splitAttr != -1)
+            node.attribute = dataSet.getAttrName(splitAttr);
+        else
+            node.classLabel = DecisionTreeID3.getClassLabel(countZero, countOne);
+    }
+
+    /**
+     * train a tree on LibSVM files and report its accuracy
+     * @param args training, validation and test data set paths
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: SparseTreeBuilder <training set> <validation set> <test set>");
+            return;
+        }
+
+        try {
+            SparseDataSet trainSet = SparseDataSet.load(args[0]);
+            SparseDataSet validationSet = SparseDataSet.load(args[1], trainSet);
+            SparseDataSet testSet = SparseDataSet.load(args[2], trainSet);
+            System.out.println("Loaded " + trainSet.getSize() + " training instances with " +
+                    trainSet.getAttrCount() + " attributes and " + trainSet.getNonZeroCount() + " non-zero values");
+
+            long start = System.nanoTime();
+            SparseTreeBuilder builder = new SparseTreeBuilder(trainSet);
+            TreeNode root = builder.build();
+            System.out.println("Built a tree with " + builder.getNodeCount() + " nodes and " +
+                    builder.getLeafCount() + " leaf nodes in " + (System.nanoTime() - start) / 1000000 +
+                    " ms, " + builder.getCountedValues() + " non-zero values counted");
+
+            String[] names = {"training", "validation", "testing"};
+            SparseDataSet[] dataSets = {trainSet, validationSet, testSet};
+            for (int i = 0; i < dataSets.length; i++) {
+                CompiledTree tree = CompiledTree.compile(root, dataSets[i]);
+                System.out.println("Accuracy of the model on the " + names[i] + " data set = " +
+                        (double) tree.countCorrect(dataSets[i]) / dataSets[i].getSize());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
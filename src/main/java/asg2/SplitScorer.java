@@ -0,0 +1,398 @@
+package asg2;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: score split attributes of a node with bit operations. The instances of the node are marked
+ * in a membership bitset, and the four counts of attribute value and class label come from Long.bitCount
+ * over (membership & attribute column & label column), 64 instances per word. Entropies are taken from a
+ * precomputed n * log2(n) table instead of calling Math.log for every count.
+ * Instances can carry integer weights, e.g. how often a bootstrap sample drew them. The weights are stored
+ * as bit planes, plane k marks the instances whose weight has bit k set, so a weighted count is the sum of
+ * 2^k * bitCount over the planes and stays a bit operation.
+ * For a multi-class data set the node keeps a vector of counts per class code. The counts come from the
+ * packed class columns in one pass over the node's words, and an entropy is one pass over a count vector
+ */
+class SplitScorer {
+    private static final int MAX_TABLE_SIZE = 1 << 22; // larger counts are computed on demand
+    private static final double LN_2 = Math.log(2);
+    private BinaryDataSet dataSet;
+    private double[] nLogN; // nLogN[k] = k * log2(k), shared by all scorers of a data set
+    private long[][] weightPlanes; // bit planes of the instance weights, null if every weight is 1
+    private long[][] classColumns; // packed class columns of a multi-class data set, null for two classes
+    private int[] classCounts; // instances per class code of the current node, multi-class only
+    private double parentClassSum; // sum of nLogN over classCounts, multi-class only
+    private long[] mask; // membership bitset of the current node
+    private int[] touchedWords; // positions of the non zero words of mask
+    private int touchedCount = 0;
+    private int count = 0; // number of instances of the current node
+    private int countOne = 0; // number of class one instances of the current node
+
+    /**
+     * constructor
+     * @param dataSet data set
+     */
+    SplitScorer(BinaryDataSet dataSet) {
+        this(dataSet, createTable(dataSet.getSize()));
+    }
+
+    /**
+     * constructor sharing the n * log2(n) table of another scorer
+     * @param dataSet data set
+     * @param nLogN table created by createTable
+     */
+    SplitScorer(BinaryDataSet dataSet, double[] nLogN) {
+        this.dataSet = dataSet;
+        this.nLogN = nLogN;
+        int words = BinaryDataSet.wordCount(dataSet.getSize());
+        mask = new long[words];
+        touchedWords = new int[words];
+        if (dataSet.isMultiClass()) {
+            classColumns = new long[dataSet.getClassCount()][];
+            for (int code = 0; code < classColumns.length; code++)
+                classColumns[code] = dataSet.getClassColumn(code);
+            classCounts = new int[classColumns.length];
+        }
+    }
+
+    /**
+     * create the n * log2(n) table for counts up to a data set size
+     * @param size data set size
+     * @return table
+     */
+    static double[] createTable(int size) {
+        double[] table = new double[Math.min(size, MAX_TABLE_SIZE) + 1];
+        for (int k = 1; k < table.length; k++)
+            table[k] = k * Math.log(k) / LN_2;
+
+        return table;
+    }
+
+    /**
+     * create the bit planes of instance weights
+     * @param weights weight of every instance, at least 0
+     * @return planes, bit i of word w of plane k is set if bit k of the weight of instance w * 64 + i is set
+     */
+    static long[][] createWeightPlanes(int[] weights) {
+        int max = 0;
+        for (int weight : weights)
+            max = Math.max(max, weight);
+
+        long[][] planes = new long[32 - Integer.numberOfLeadingZeros(max)][BinaryDataSet.wordCount(weights.length)];
+        for (int row = 0; row < weights.length; row++) {
+            for (int k = 0; k < planes.length; k++) {
+                if ((weights[row] & (1 << k)) != 0)
+                    planes[k][row >>> 6] |= 1L << row;
+            }
+        }
+
+        return planes;
+    }
+
+    /**
+     * set the instance weights used by the following nodes
+     * @param weightPlanes planes created by createWeightPlanes, null if every weight is 1
+     */
+    void setWeightPlanes(long[][] weightPlanes) {
+        this.weightPlanes = weightPlanes;
+    }
+
+    /**
+     * get the n * log2(n) table of this scorer
+     * @return table
+     */
+    double[] getTable() {
+        return nLogN;
+    }
+
+    /**
+     * mark the instances rows[from, to) as the current node and count their class labels
+     * @param rows instance positions, with weights every instance has to appear only once
+     * @param from start position, inclusive
+     * @param to end position, exclusive
+     */
+    void setRows(int[] rows, int from, int to) {
+        clear();
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            int word = row >>> 6;
+            if (mask[word] == 0)
+                touchedWords[touchedCount++] = word;
+            mask[word] |= 1L << row;
+        }
+
+        long[] labels = dataSet.getLabelColumn();
+        if (weightPlanes == null) {
+            count = to - from;
+            countOne = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int w = touchedWords[i];
+                countOne += Long.bitCount(mask[w] & labels[w]);
+            }
+        } else {
+            count = weightedCount(null);
+            countOne = weightedCount(labels);
+        }
+
+        if (classColumns != null) {
+            countClasses(null, classCounts);
+            parentClassSum = 0;
+            for (int classCount : classCounts)
+                parentClassSum += nLogN(classCount);
+        }
+    }
+
+    /**
+     * count the instances of the current node per class within a column, in one pass over the node's words
+     * @param column packed column, null to count all instances of the node
+     * @param counts receives instances per class code, every instance counts with its weight
+     */
+    private void countClasses(long[] column, int[] counts) {
+        for (int code = 0; code < counts.length; code++)
+            counts[code] = 0;
+
+        int planes = weightPlanes == null ? 1 : weightPlanes.length;
+        for (int k = 0; k < planes; k++) {
+            long[] plane = weightPlanes == null ? null : weightPlanes[k];
+            for (int i = 0; i < touchedCount; i++) {
+                int w = touchedWords[i];
+                long bits = mask[w];
+                if (column != null)
+                    bits &= column[w];
+                if (plane != null)
+                    bits &= plane[w];
+                if (bits == 0)
+                    continue;
+                for (int code = 0; code < counts.length; code++)
+                    counts[code] += Long.bitCount(bits & classColumns[code][w]) << k;
+            }
+        }
+    }
+
+    /**
+     * count the instances of the current node within a column, every instance counts with its weight
+     * @param column packed column, null to count all instances of the node
+     * @return weighted count
+     */
+    private int weightedCount(long[] column) {
+        int total = 0;
+        for (int k = 0; k < weightPlanes.length; k++) {
+            long[] plane = weightPlanes[k];
+            int planeCount = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int w = touchedWords[i];
+                long bits = mask[w] & plane[w];
+                planeCount += Long.bitCount(column == null ? bits : bits & column[w]);
+            }
+            total += planeCount << k;
+        }
+
+        return total;
+    }
+
+    /**
+     * reset the membership bitset, only the touched words are cleared
+     */
+    void clear() {
+        for (int i = 0; i < touchedCount; i++)
+            mask[touchedWords[i]] = 0L;
+        touchedCount = 0;
+        count = 0;
+        countOne = 0;
+    }
+
+    /**
+     * get the number of instances of the current node, the sum of their weights if weights are set
+     * @return number of instances
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * get the instances per class code of the current node
+     * @return copy of the count vector, null unless the data set is multi-class
+     */
+    int[] getClassCounts() {
+        return classCounts == null ? null : classCounts.clone();
+    }
+
+    /**
+     * check whether all instances of the current node have the same class
+     * @return true if the node is pure
+     */
+    boolean isPure() {
+        if (classCounts == null)
+            return countOne == 0 || countOne == count;
+
+        for (int classCount : classCounts) {
+            if (classCount == count)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * get the number of class one instances of the current node
+     * @return number of class one instances
+     */
+    int getCountOne() {
+        return countOne;
+    }
+
+    /**
+     * get split attribute of the current node, attributes are scanned in column order and the first
+     * attribute with the highest information gain wins
+     * @param excludedAttrs attributes which can not be chosen
+     * @return column position of split attribute, -1 if no attribute gains information
+     */
+    int getSplitAttr(boolean[] excludedAttrs) {
+        int splitAttr = -1;
+        double gainMax = minGain();
+        for (int attr = 0; attr < excludedAttrs.length; attr++) {
+            if (excludedAttrs[attr])
+                continue;
+
+            double gain = score(attr);
+            if (gain > gainMax) {
+                gainMax = gain;
+                splitAttr = attr;
+            }
+        }
+
+        return splitAttr;
+    }
+
+    /**
+     * the smallest score which is treated as a real information gain, smaller scores come from rounding
+     * @return threshold
+     */
+    double minGain() {
+        return 1e-9 * count;
+    }
+
+    /**
+     * score an attribute of the current node. The score is the information gain multiplied by the number
+     * of instances of the node, so scores of one node can be compared without dividing
+     * @param attr column position
+     * @return scaled information gain
+     */
+    double score(int attr) {
+        if (classColumns != null)
+            return scoreClasses(attr);
+
+        long[] column = dataSet.getColumn(attr);
+        long[] labels = dataSet.getLabelColumn();
+        int countValueOne = 0, countOneOne = 0;
+        if (weightPlanes == null) {
+            for (int i = 0; i < touchedCount; i++) {
+                int w = touchedWords[i];
+                long valueOne = mask[w] & column[w];
+                countValueOne += Long.bitCount(valueOne);
+                countOneOne += Long.bitCount(valueOne & labels[w]);
+            }
+        } else {
+            for (int k = 0; k < weightPlanes.length; k++) {
+                long[] plane = weightPlanes[k];
+                int planeValueOne = 0, planeOneOne = 0;
+                for (int i = 0; i < touchedCount; i++) {
+                    int w = touchedWords[i];
+                    long valueOne = mask[w] & plane[w] & column[w];
+                    planeValueOne += Long.bitCount(valueOne);
+                    planeOneOne += Long.bitCount(valueOne & labels[w]);
+                }
+                countValueOne += planeValueOne << k;
+                countOneOne += planeOneOne << k;
+            }
+        }
+
+        return binaryGain(nLogN, count, countOne, countValueOne, countOneOne);
+    }
+
+    /**
+     * scaled information gain of a binary split of a node with two classes, shared by all tree builders so
+     * that they choose the same splits. Every sum is symmetric, so splits with mirrored counts get exactly
+     * the same score and ties are always broken by the order in which the candidates are scored
+     * @param table table created by createTable
+     * @param count number of instances of the node
+     * @param countOne number of class one instances of the node
+     * @param countValueOne number of instances going to the second child (attribute value 1)
+     * @param countOneOne number of class one instances going to the second child
+     * @return scaled information gain
+     */
+    static double binaryGain(double[] table, int count, int countOne, int countValueOne, int countOneOne) {
+        int countValueZero = count - countValueOne;
+        int countZeroOne = countOne - countOneOne;
+        int countZeroZero = countValueZero - countZeroOne;
+        int countOneZero = countValueOne - countOneOne;
+
+        double parent = nLogN(table, count) - (nLogN(table, count - countOne) + nLogN(table, countOne));
+        double children = (nLogN(table, countValueZero)
+                - (nLogN(table, countZeroZero) + nLogN(table, countZeroOne)))
+                + (nLogN(table, countValueOne) - (nLogN(table, countOneZero) + nLogN(table, countOneOne)));
+        return parent - children;
+    }
+
+    /**
+     * score an attribute of the current node of a multi-class data set, the entropy of every side comes
+     * from one pass over its count vector. Scorers of AttrTask score attributes concurrently, so the count
+     * vector of the attribute is not a field
+     * @param attr column position
+     * @return scaled information gain
+     */
+    private double scoreClasses(int attr) {
+        int[] valueOneCounts = new int[classCounts.length];
+        countClasses(dataSet.getColumn(attr), valueOneCounts);
+        return classGain(nLogN, count, classCounts, parentClassSum, valueOneCounts, 0);
+    }
+
+    /**
+     * scaled information gain of a binary split of a multi-class node, shared by all tree builders like
+     * binaryGain
+     * @param table table created by createTable
+     * @param count number of instances of the node
+     * @param classCounts instances per class code of the node
+     * @param parentClassSum sum of nLogN over classCounts
+     * @param valueOneCounts counts per class code of the instances whose attribute value is 1
+     * @param offset position of the count vector in valueOneCounts
+     * @return scaled information gain
+     */
+    static double classGain(double[] table, int count, int[] classCounts, double parentClassSum,
+                            int[] valueOneCounts, int offset) {
+        int countValueOne = 0;
+        double valueZeroSum = 0, valueOneSum = 0;
+        for (int code = 0; code < classCounts.length; code++) {
+            int valueOneCount = valueOneCounts[offset + code];
+            countValueOne += valueOneCount;
+            valueZeroSum += nLogN(table, classCounts[code] - valueOneCount);
+            valueOneSum += nLogN(table, valueOneCount);
+        }
+
+        double parent = nLogN(table, count) - parentClassSum;
+        double children = (nLogN(table, count - countValueOne) - valueZeroSum)
+                + (nLogN(table, countValueOne) - valueOneSum);
+        return parent - children;
+    }
+
+    /**
+     * look up k * log2(k)
+     * @param k count
+     * @return k * log2(k), 0 if k is 0
+     */
+    private double nLogN(int k) {
+        return nLogN(nLogN, k);
+    }
+
+    /**
+     * look up k * log2(k) in a table, counts beyond the table are computed
+     * @param table table created by createTable
+     * @param k count
+     * @return k * log2(k), 0 if k is 0
+     */
+    static double nLogN(double[] table, int k) {
+        if (k < table.length)
+            return table[k];
+
+        return k * Math.log(k) / LN_2;
+    }
+}
@@ -0,0 +1,339 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: instrumentation of loading, building, pruning and evaluating, enabled with -Dmetrics=true.
+ * Phases are timed with begin / end around the entry points, builders report the nodes per depth and the
+ * number of scored split candidates, and single predictions feed a LatencyHistogram. Counters are exposed
+ * through the TrainingMetricsMXBean and, on a JVM with Flight Recorder, also emitted as JFR events.
+ * When disabled every call site only tests the constant ENABLED
+ */
+public class TrainingMetrics implements TrainingMetricsMXBean {
+    static final boolean ENABLED = Boolean.getBoolean("metrics");
+    private static final boolean JFR_AVAILABLE = ENABLED && isJfrAvailable();
+    private static final TrainingMetrics INSTANCE = new TrainingMetrics();
+
+    /**
+     * instrumented phases
+     */
+    enum Phase {
+        LOAD, BUILD, PRUNE, EVALUATE;
+
+        String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * start of a running phase, returned by begin
+     */
+    static final class PhaseTimer {
+        private final Phase phase;
+        private final long startNanos;
+        private final long startBytes;
+        private final Object jfrEvent; // null without Flight Recorder
+
+        private PhaseTimer(Phase phase, long startNanos, long startBytes, Object jfrEvent) {
+            this.phase = phase;
+            this.startNanos = startNanos;
+            this.startBytes = startBytes;
+            this.jfrEvent = jfrEvent;
+        }
+    }
+
+    private final AtomicLongArray phaseCounts = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray phaseRows = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray phaseBytes = new AtomicLongArray(Phase.values().length);
+    private final AtomicLong splitEvaluations = new AtomicLong();
+    private final AtomicLong splitEvaluationNanos = new AtomicLong(); // build time of the counted evaluations
+    private final AtomicReference<long[]> lastNodesPerDepth = new AtomicReference<>(new long[0]);
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+                        new ObjectName("asg2:type=TrainingMetrics"));
+            } catch (JMException e) {
+                e.printStackTrace(); // the counters still work without JMX
+            }
+        }
+    }
+
+    private TrainingMetrics() {
+    }
+
+    /**
+     * get the metrics of this JVM
+     * @return metrics
+     */
+    public static TrainingMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * check whether the JVM has Flight Recorder, without loading any jdk.jfr class
+     * @return true if JFR events can be emitted
+     */
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, TrainingMetrics.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * start timing a phase
+     * @param phase phase
+     * @return timer to pass to end, null if metrics are disabled
+     */
+    static PhaseTimer begin(Phase phase) {
+        if (!ENABLED)
+            return null;
+
+        return new PhaseTimer(phase, System.nanoTime(), allocatedBytes(), JFR_AVAILABLE ? JfrEvents.beginPhase() : null);
+    }
+
+    /**
+     * finish timing a phase
+     * @param timer timer returned by begin, null is ignored
+     * @param rowsScanned instances scanned by the phase
+     */
+    static void end(PhaseTimer timer, long rowsScanned) {
+        if (timer == null)
+            return;
+
+        long nanos = System.nanoTime() - timer.startNanos;
+        long bytes = timer.startBytes < 0 ? -1 : allocatedBytes() - timer.startBytes;
+        int p = timer.phase.ordinal();
+        INSTANCE.phaseCounts.incrementAndGet(p);
+        INSTANCE.phaseNanos.addAndGet(p, nanos);
+        INSTANCE.phaseRows.addAndGet(p, rowsScanned);
+        if (bytes > 0)
+            INSTANCE.phaseBytes.addAndGet(p, bytes);
+        if (timer.jfrEvent != null)
+            JfrEvents.endPhase(timer.jfrEvent, timer.phase.label(), rowsScanned, bytes);
+    }
+
+    /**
+     * finish timing a build and record the shape of the tree
+     * @param timer timer of the build phase returned by begin, null is ignored
+     * @param root root node of the built tree, may be null
+     * @param evaluations number of split candidates scored
+     * @param rowsScanned instance visits of the split scoring
+     */
+    static void endBuild(PhaseTimer timer, TreeNode root, long evaluations, long rowsScanned) {
+        if (timer == null)
+            return;
+
+        long nanos = System.nanoTime() - timer.startNanos;
+        end(timer, rowsScanned);
+        long[] nodesPerDepth = countByDepth(root);
+        INSTANCE.splitEvaluations.addAndGet(evaluations);
+        INSTANCE.splitEvaluationNanos.addAndGet(nanos);
+        INSTANCE.lastNodesPerDepth.set(nodesPerDepth);
+        if (JFR_AVAILABLE)
+            JfrEvents.treeBuilt(nodesPerDepth, evaluations);
+    }
+
+    /**
+     * record the latency of one prediction
+     * @param nanos latency in nanoseconds
+     */
+    static void recordPrediction(long nanos) {
+        if (!ENABLED)
+            return;
+
+        INSTANCE.latencyHistogram.record(nanos);
+        if (JFR_AVAILABLE)
+            JfrEvents.prediction(nanos);
+    }
+
+    /**
+     * count the nodes per depth without recursion, the children of a multi-way split included
+     * @param root root node, may be null
+     * @return nodes by depth
+     */
+    private static long[] countByDepth(TreeNode root) {
+        long[] counts = new long[16];
+        int depth = -1;
+        Deque<TreeNode> nodes = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        if (root != null) {
+            nodes.push(root);
+            depths.push(0);
+        }
+        while (!nodes.isEmpty()) {
+            TreeNode node = nodes.pop();
+            int d = depths.pop();
+            if (d == counts.length)
+                counts = Arrays.copyOf(counts, counts.length * 2);
+            counts[d]++;
+            depth = Math.max(depth, d);
+            if (node.left != null) {
+                nodes.push(node.left);
+                depths.push(d + 1);
+            }
+            if (node.right != null) {
+                nodes.push(node.right);
+                depths.push(d + 1);
+            }
+            if (node.children != null) {
+                for (TreeNode child : node.children) {
+                    if (child != null) {
+                        nodes.push(child);
+                        depths.push(d + 1);
+                    }
+                }
+            }
+        }
+
+        return Arrays.copyOf(counts, depth + 1);
+    }
+
+    /**
+     * get the bytes allocated so far by the live threads of the JVM, threads which ended are not included
+     * @return bytes, -1 if the JVM does not measure allocations
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean))
+            return -1;
+
+        com.sun.management.ThreadMXBean hotSpotThreads = (com.sun.management.ThreadMXBean) threads;
+        if (!hotSpotThreads.isThreadAllocatedMemorySupported() || !hotSpotThreads.isThreadAllocatedMemoryEnabled())
+            return -1;
+
+        long total = 0;
+        for (long bytes : hotSpotThreads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0)
+                total += bytes;
+        }
+        return total;
+    }
+
+    /**
+     * turn per phase counters into a map keyed by phase name
+     * @param counters counters by phase ordinal
+     * @param divisor value divisor
+     * @return phase name --> value
+     */
+    private static Map<String, Long> byPhase(AtomicLongArray counters, long divisor) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Phase phase : Phase.values())
+            values.put(phase.label(), counters.get(phase.ordinal()) / divisor);
+
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseCounts() {
+        return byPhase(phaseCounts, 1);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseTimeMillis() {
+        return byPhase(phaseNanos, 1000000);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseRowsScanned() {
+        return byPhase(phaseRows, 1);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseAllocatedBytes() {
+        return byPhase(phaseBytes, 1);
+    }
+
+    @Override
+    public long[] getLastTreeNodesPerDepth() {
+        return lastNodesPerDepth.get().clone();
+    }
+
+    @Override
+    public long getSplitEvaluations() {
+        return splitEvaluations.get();
+    }
+
+    @Override
+    public double getSplitEvaluationsPerSecond() {
+        long nanos = splitEvaluationNanos.get();
+        return nanos == 0 ? 0 : splitEvaluations.get() * 1e9 / nanos;
+    }
+
+    @Override
+    public long getPredictionCount() {
+        return latencyHistogram.count();
+    }
+
+    @Override
+    public long[] getPredictionLatencyHistogram() {
+        return latencyHistogram.snapshot();
+    }
+
+    @Override
+    public double getPredictionLatencyP50Micros() {
+        return latencyHistogram.percentileMicros(0.5);
+    }
+
+    @Override
+    public double getPredictionLatencyP99Micros() {
+        return latencyHistogram.percentileMicros(0.99);
+    }
+
+    @Override
+    public void reset() {
+        for (int p = 0; p < Phase.values().length; p++) {
+            phaseCounts.set(p, 0);
+            phaseNanos.set(p, 0);
+            phaseRows.set(p, 0);
+            phaseBytes.set(p, 0);
+        }
+        latencyHistogram.reset();
+        splitEvaluations.set(0);
+        splitEvaluationNanos.set(0);
+        lastNodesPerDepth.set(new long[0]);
+    }
+
+    /**
+     * summarise the counters
+     * @return one line per phase followed by the tree and prediction counters
+     */
+    String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            int p = phase.ordinal();
+            sb.append(phase.label()).append(": runs = ").append(phaseCounts.get(p))
+                    .append(", time = ").append(phaseNanos.get(p) / 1000000).append(" ms")
+                    .append(", rows scanned = ").append(phaseRows.get(p))
+                    .append(", allocated = ").append(phaseBytes.get(p) >> 10).append(" KB\n");
+        }
+        sb.append("nodes per depth of the last tree = ").append(Arrays.toString(getLastTreeNodesPerDepth())).append('\n');
+        sb.append("split evaluations = ").append(getSplitEvaluations())
+                .append(", per second = ").append((long) getSplitEvaluationsPerSecond()).append('\n');
+        sb.append("predictions = ").append(getPredictionCount())
+                .append(", p50 <= ").append(getPredictionLatencyP50Micros()).append(" us")
+                .append(", p99 <= ").append(getPredictionLatencyP99Micros()).append(" us");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package asg2;
+
+import java.util.Map;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: JMX view of TrainingMetrics, registered as asg2:type=TrainingMetrics when the JVM is started
+ * with -Dmetrics=true. Phase maps are keyed by phase name: load, build, prune and evaluate
+ */
+public interface TrainingMetricsMXBean {
+    /**
+     * get the number of times every phase ran
+     * @return phase name --> count
+     */
+    Map<String, Long> getPhaseCounts();
+
+    /**
+     * get the total time of every phase
+     * @return phase name --> milliseconds
+     */
+    Map<String, Long> getPhaseTimeMillis();
+
+    /**
+     * get the instances scanned by every phase, for building the instance visits of split scoring
+     * @return phase name --> instances
+     */
+    Map<String, Long> getPhaseRowsScanned();
+
+    /**
+     * get the bytes allocated by the live threads of the JVM during every phase
+     * @return phase name --> bytes, empty if the JVM does not measure allocations
+     */
+    Map<String, Long> getPhaseAllocatedBytes();
+
+    /**
+     * get the number of nodes per depth of the last built tree
+     * @return nodes by depth, the root is at depth 0
+     */
+    long[] getLastTreeNodesPerDepth();
+
+    /**
+     * get the number of split candidates scored by all builds
+     * @return split evaluations
+     */
+    long getSplitEvaluations();
+
+    /**
+     * get the split evaluation rate of all builds
+     * @return split evaluations per second of build time
+     */
+    double getSplitEvaluationsPerSecond();
+
+    /**
+     * get the number of recorded predictions
+     * @return predictions
+     */
+    long getPredictionCount();
+
+    /**
+     * get the prediction latency histogram, bucket i counts latencies in [2^i, 2^(i+1)) nanoseconds
+     * @return counts by bucket
+     */
+    long[] getPredictionLatencyHistogram();
+
+    /**
+     * get the median prediction latency
+     * @return upper bound of the median's bucket in microseconds, 0 without predictions
+     */
+    double getPredictionLatencyP50Micros();
+
+    /**
+     * get the 99th percentile prediction latency
+     * @return upper bound of the 99th percentile's bucket in microseconds, 0 without predictions
+     */
+    double getPredictionLatencyP99Micros();
+
+    /**
+     * clear all counters
+     */
+    void reset();
+}
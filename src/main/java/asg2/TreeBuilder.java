@@ -0,0 +1,436 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: build an ID3 decision tree from a bit packed column data set. All nodes share one
+ * immutable data set and one array of instance positions, every node owns a range of the array which is
+ * partitioned in place for its children (like quicksort), so no data is copied while the tree grows.
+ * With a parallelism above 1 the tree is built on a ForkJoinPool: large subtrees become separate tasks and
+ * the candidate attributes of large nodes are scored in parallel. Node ids are assigned in pre-order after
+ * the tree is complete, so the parallel tree is identical to the sequential one
+ */
+class TreeBuilder {
+    private static final int SUBTREE_THRESHOLD = 1 << 12; // smaller subtrees are built sequentially
+    private static final int ATTR_THRESHOLD = 1 << 15; // nodes with more instances score attributes in parallel
+    private static final int ATTR_CHUNK = 16; // number of attributes scored by one task
+    private BinaryDataSet dataSet;
+    private int parallelism;
+    private double[] nLogN; // shared by all scorers
+    private ConcurrentLinkedQueue<SplitScorer> scorers = new ConcurrentLinkedQueue<>(); // idle scorers
+    private int[] rows; // instance positions, node ranges are partitioned in place
+    private long[][] weightPlanes; // instance weights of the current build, null if every weight is 1
+    private String[] classNames; // class labels by class code, shared by the nodes of a multi-class tree
+    private AtomicLong splitEvaluations = new AtomicLong(); // scored candidates, only counted with metrics
+    private AtomicLong rowsScanned = new AtomicLong(); // instance visits of scoring, only counted with metrics
+    private int nodeCount = 0;
+    private int leafCount = 0;
+
+    /**
+     * constructor of a sequential builder
+     * @param dataSet training data set
+     */
+    TreeBuilder(BinaryDataSet dataSet) {
+        this(dataSet, 1);
+    }
+
+    /**
+     * constructor
+     * @param dataSet training data set
+     * @param parallelism number of threads, 1 builds the tree in the calling thread
+     */
+    TreeBuilder(BinaryDataSet dataSet, int parallelism) {
+        this(dataSet, parallelism, SplitScorer.createTable(dataSet.getSize()));
+    }
+
+    /**
+     * constructor sharing the n * log2(n) table of other builders of the same data set
+     * @param dataSet training data set
+     * @param parallelism number of threads, 1 builds the tree in the calling thread
+     * @param nLogN table created by SplitScorer.createTable
+     */
+    TreeBuilder(BinaryDataSet dataSet, int parallelism, double[] nLogN) {
+        this.dataSet = dataSet;
+        this.parallelism = Math.max(1, parallelism);
+        this.nLogN = nLogN;
+        if (dataSet.isMultiClass()) {
+            classNames = new String[dataSet.getClassCount()];
+            for (int code = 0; code < classNames.length; code++)
+                classNames[code] = dataSet.getClassName(code);
+        }
+    }
+
+    /**
+     * build a tree using all instances and all attributes of the data set
+     * @return root node, null if the data set is empty
+     */
+    TreeNode build() {
+        int[] rows = new int[dataSet.getSize()];
+        for (int i = 0; i < rows.length; i++)
+            rows[i] = i;
+
+        return build(rows, new boolean[dataSet.getAttrCount()]);
+    }
+
+    /**
+     * build a tree using a subset of instances and attributes
+     * @param rows positions of the instances, the array is reordered while building
+     * @param excludedAttrs attributes which can not be chosen as split attribute, the array is not modified
+     * @return root node, null if there is no instance
+     */
+    TreeNode build(int[] rows, boolean[] excludedAttrs) {
+        return build(rows, null, excludedAttrs);
+    }
+
+    /**
+     * build a tree using weighted instances, e.g. a bootstrap sample where the weight of an instance is the
+     * number of times it was drawn. Node counts are the sums of the weights
+     * @param rows positions of the instances with a weight above 0, every instance appears once, the array
+     *             is reordered while building
+     * @param weightPlanes weight bit planes created by SplitScorer.createWeightPlanes, null if every weight is 1
+     * @param excludedAttrs attributes which can not be chosen as split attribute, the array is not modified
+     * @return root node, null if there is no instance
+     */
+    TreeNode build(int[] rows, long[][] weightPlanes, boolean[] excludedAttrs) {
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.BUILD);
+        splitEvaluations.set(0);
+        rowsScanned.set(0);
+        this.rows = rows;
+        this.weightPlanes = weightPlanes;
+        TreeNode root;
+        if (parallelism == 1) {
+            root = build(0, rows.length, 0, excludedAttrs.clone());
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                root = pool.invoke(new BuildTask(0, rows.length, 0, excludedAttrs.clone()));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        int[] counts = DecisionTreeID3.assignIds(root);
+        nodeCount = counts[0];
+        leafCount = counts[1];
+        this.rows = null;
+        this.weightPlanes = null;
+        TrainingMetrics.endBuild(timer, root, splitEvaluations.get(), rowsScanned.get());
+        return root;
+    }
+
+    /**
+     * get the number of nodes of the last built tree
+     * @return number of nodes
+     */
+    int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * get the number of leaf nodes of the last built tree
+     * @return number of leaf nodes
+     */
+    int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * compare two trees node by node in pre-order, e.g. a parallel or level-wise build with the sequential one.
+     * Nodes are equal if their ids, heights, split attributes, class labels and class counts are equal
+     * @param expected root node of the reference tree
+     * @param actual root node of the tree to check
+     * @return id of the first node of the reference tree which differs, -1 if the trees are identical
+     */
+    static int findDifference(TreeNode expected, TreeNode actual) {
+        Deque<TreeNode[]> stack = new ArrayDeque<>();
+        stack.push(new TreeNode[]{expected, actual});
+        while (!stack.isEmpty()) {
+            TreeNode[] pair = stack.pop();
+            TreeNode a = pair[0], b = pair[1];
+            if (a == null || b == null) {
+                if (a != b)
+                    return a == null ? b.id : a.id;
+                continue;
+            }
+
+            if (a.id != b.id || a.height != b.height || !equals(a.attribute, b.attribute)
+                    || !equals(a.classLabel, b.classLabel) || a.labelZeroCount != b.labelZeroCount
+                    || a.labelOneCount != b.labelOneCount || !Arrays.equals(a.classCounts, b.classCounts)
+                    || (a.children == null) != (b.children == null))
+                return a.id;
+
+            if (a.children != null) {
+                if (a.children.length != b.children.length)
+                    return a.id;
+                for (int i = a.children.length - 1; i >= 0; i--)
+                    stack.push(new TreeNode[]{a.children[i], b.children[i]});
+            }
+            stack.push(new TreeNode[]{a.right, b.right});
+            stack.push(new TreeNode[]{a.left, b.left});
+        }
+
+        return -1;
+    }
+
+    /**
+     * null safe string comparison
+     * @param a string, may be null
+     * @param b string, may be null
+     * @return true if both are null or equal
+     */
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * build the subtree of the instances rows[from, to) in the calling thread
+     * @param from start position, inclusive
+     * @param to end position, exclusive
+     * @param height the height of the node
+     * @param usedAttrs attributes chosen by the ancestors, restored before returning
+     * @return constructed node
+     */
+    private TreeNode build(int from, int to, int height, boolean[] usedAttrs) {
+        if (from == to)
+            return null;
+
+        SplitScorer scorer = borrowScorer();
+        scorer.setRows(rows, from, to);
+        int countOne = scorer.getCountOne();
+        int countZero = scorer.getCount() - countOne;
+        int[] classCounts = scorer.getClassCounts();
+        int splitAttr = -1;
+        if (!scorer.isPure()) {
+            if (TrainingMetrics.ENABLED)
+                countEvaluations(usedAttrs, to - from);
+            splitAttr = scorer.getSplitAttr(usedAttrs);
+        }
+        returnScorer(scorer);
+
+        TreeNode node = createNode(height, splitAttr, countZero, countOne, classCounts);
+        if (splitAttr == -1)
+            return node;
+
+        int mid = partition(from, to, splitAttr);
+        usedAttrs[splitAttr] = true;
+        node.left = build(from, mid, height + 1, usedAttrs);
+        node.right = build(mid, to, height + 1, usedAttrs);
+        usedAttrs[splitAttr] = false;
+
+        return node;
+    }
+
+    /**
+     * count the candidates scored for a node for the training metrics
+     * @param usedAttrs attributes which are not scored
+     * @param rowCount number of instances of the node
+     */
+    private void countEvaluations(boolean[] usedAttrs, int rowCount) {
+        int candidates = 0;
+        for (boolean used : usedAttrs) {
+            if (!used)
+                candidates++;
+        }
+        splitEvaluations.addAndGet(candidates);
+        rowsScanned.addAndGet((long) candidates * rowCount);
+    }
+
+    /**
+     * create a node whose id is assigned later
+     * @param height the height of the node
+     * @param splitAttr column position of split attribute, -1 for a leaf node
+     * @param countZero number of class zero instances, instances whose class label is "0" if multi-class
+     * @param countOne number of class one instances, the other instances if multi-class
+     * @param classCounts instances per class code, null for a binary data set
+     * @return node
+     */
+    private TreeNode createNode(int height, int splitAttr, int countZero, int countOne, int[] classCounts) {
+        TreeNode node;
+        if (splitAttr != -1)
+            node = new TreeNode(-1, height, dataSet.getAttrName(splitAttr), null, countZero, countOne);
+        else if (classCounts == null)
+            node = new TreeNode(-1, height, null, DecisionTreeID3.getClassLabel(countZero, countOne), countZero, countOne);
+        else
+            node = new TreeNode(-1, height, null, dataSet.getClassName(DecisionTreeID3.majorityClass(classCounts)),
+                    countZero, countOne);
+
+        if (classCounts != null) {
+            node.classCounts = classCounts;
+            node.classNames = classNames;
+        }
+        return node;
+    }
+
+    /**
+     * take an idle scorer or create a new one, a scorer is used by one thread at a time
+     * @return scorer
+     */
+    private SplitScorer borrowScorer() {
+        SplitScorer scorer = scorers.poll();
+        if (scorer == null)
+            scorer = new SplitScorer(dataSet, nLogN);
+        scorer.setWeightPlanes(weightPlanes);
+        return scorer;
+    }
+
+    /**
+     * give a scorer back after its node has been scored
+     * @param scorer scorer
+     */
+    private void returnScorer(SplitScorer scorer) {
+        scorer.clear();
+        scorers.offer(scorer);
+    }
+
+    /**
+     * move the instances of rows[from, to) whose split attribute value is 0 to the front
+     * @param from start position, inclusive
+     * @param to end position, exclusive
+     * @param splitAttr column position of split attribute
+     * @return position of the first instance whose value is 1
+     */
+    private int partition(int from, int to, int splitAttr) {
+        int i = from, j = to - 1;
+        while (i <= j) {
+            if (dataSet.getValue(splitAttr, rows[i]) == 0) {
+                i++;
+            } else {
+                int tmp = rows[i];
+                rows[i] = rows[j];
+                rows[j--] = tmp;
+            }
+        }
+
+        return i;
+    }
+
+    /**
+     * task building the subtree of the instances rows[from, to), the two subtrees of a large node are
+     * built by separate tasks. Sibling tasks own disjoint ranges of rows
+     */
+    private class BuildTask extends RecursiveTask<TreeNode> {
+        private static final long serialVersionUID = 1L;
+        private int from;
+        private int to;
+        private int height;
+        private boolean[] usedAttrs; // owned by this task
+
+        BuildTask(int from, int to, int height, boolean[] usedAttrs) {
+            this.from = from;
+            this.to = to;
+            this.height = height;
+            this.usedAttrs = usedAttrs;
+        }
+
+        @Override
+        protected TreeNode compute() {
+            if (to - from < SUBTREE_THRESHOLD)
+                return build(from, to, height, usedAttrs);
+
+            SplitScorer scorer = borrowScorer();
+            scorer.setRows(rows, from, to);
+            int countOne = scorer.getCountOne();
+            int countZero = scorer.getCount() - countOne;
+            int[] classCounts = scorer.getClassCounts();
+            int splitAttr = -1;
+            if (!scorer.isPure()) {
+                if (TrainingMetrics.ENABLED)
+                    countEvaluations(usedAttrs, to - from);
+                if (to - from < ATTR_THRESHOLD)
+                    splitAttr = scorer.getSplitAttr(usedAttrs);
+                else
+                    splitAttr = new AttrTask(scorer, usedAttrs, 0, usedAttrs.length).invoke().attr;
+            }
+            returnScorer(scorer);
+
+            TreeNode node = createNode(height, splitAttr, countZero, countOne, classCounts);
+            if (splitAttr == -1)
+                return node;
+
+            int mid = partition(from, to, splitAttr);
+            usedAttrs[splitAttr] = true;
+            BuildTask left = new BuildTask(from, mid, height + 1, usedAttrs.clone());
+            BuildTask right = new BuildTask(mid, to, height + 1, usedAttrs);
+            left.fork();
+            node.right = right.compute();
+            node.left = left.join();
+
+            return node;
+        }
+    }
+
+    /**
+     * best attribute found by an AttrTask
+     */
+    private static class Candidate {
+        int attr;
+        double gain;
+
+        Candidate(int attr, double gain) {
+            this.attr = attr;
+            this.gain = gain;
+        }
+    }
+
+    /**
+     * task scoring the attributes [from, to) of the node marked in a scorer. Among the attributes with the
+     * highest gain the one with the smallest column position wins, the same as the sequential scan
+     */
+    private static class AttrTask extends RecursiveTask<Candidate> {
+        private static final long serialVersionUID = 1L;
+        private SplitScorer scorer;
+        private boolean[] usedAttrs;
+        private int from;
+        private int to;
+
+        AttrTask(SplitScorer scorer, boolean[] usedAttrs, int from, int to) {
+            this.scorer = scorer;
+            this.usedAttrs = usedAttrs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Candidate compute() {
+            if (to - from <= ATTR_CHUNK) {
+                Candidate best = new Candidate(-1, scorer.minGain());
+                for (int attr = from; attr < to; attr++) {
+                    if (usedAttrs[attr])
+                        continue;
+
+                    double gain = scorer.score(attr);
+                    if (gain > best.gain) {
+                        best.attr = attr;
+                        best.gain = gain;
+                    }
+                }
+                return best;
+            }
+
+            List<AttrTask> tasks = new ArrayList<>();
+            for (int start = from; start < to; start += ATTR_CHUNK)
+                tasks.add(new AttrTask(scorer, usedAttrs, start, Math.min(to, start + ATTR_CHUNK)));
+            invokeAll(tasks);
+
+            Candidate best = tasks.get(0).join();
+            for (int i = 1; i < tasks.size(); i++) {
+                Candidate candidate = tasks.get(i).join();
+                if (candidate.gain > best.gain)
+                    best = candidate;
+            }
+            return best;
+        }
+    }
+}
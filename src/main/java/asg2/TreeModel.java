@@ -0,0 +1,407 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: a trained tree stored as flat node arrays in pre-order, which can be saved to a binary model
+ * file and loaded again without building the tree. Split attributes are stored by name, so a loaded model
+ * can be compiled for any data set containing them. Layout of a model file (big endian):
+ * magic, version, node count, attribute count, class count (0 for two classes), attribute names and class
+ * names (length + UTF-8 bytes), padding to 8 bytes, split attribute of every node (position in the
+ * attribute names, -1 for a leaf node), left child, right child, class zero count and class one count of
+ * every node, and for a multi-class model the count of every class at every node, node by node.
+ * Version 1 files have neither class count nor class names and are still loaded
+ */
+public class TreeModel {
+    private static final int MAGIC = 0x44544D31; // "DTM1"
+    private static final int VERSION = 2;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private String[] attrNames; // names of the split attributes
+    private int[] featureIndex; // position in attrNames, -1 for a leaf node
+    private int[] left; // child for attribute value 0
+    private int[] right; // child for attribute value 1
+    private int[] labelZeroCount; // number of class zero training instances of every node
+    private int[] labelOneCount; // number of class one training instances of every node
+    private String[] classNames; // class labels by class code of a multi-class model, null for two classes
+    private int[] classCounts; // classCounts[node * classNames.length + code], null for two classes
+
+    private TreeModel(String[] attrNames, String[] classNames, int nodeCount) {
+        this.attrNames = attrNames;
+        this.classNames = classNames;
+        if (classNames != null)
+            classCounts = new int[nodeCount * classNames.length];
+        featureIndex = new int[nodeCount];
+        left = new int[nodeCount];
+        right = new int[nodeCount];
+        labelZeroCount = new int[nodeCount];
+        labelOneCount = new int[nodeCount];
+    }
+
+    /**
+     * flatten a tree, nodes are numbered in pre-order
+     * @param root root node
+     * @return model
+     */
+    public static TreeModel fromTree(TreeNode root) {
+        if (root == null)
+            throw new IllegalArgumentException("tree is empty");
+
+        String[] classNames = root.classNames; // null for a binary tree
+        List<TreeNode> nodes = new ArrayList<>();
+        Map<String, Integer> attrPositions = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            TreeNode node = stack.pop();
+            nodes.add(node);
+            // leaf nodes are checked too, a multi-class tree may be a single leaf node
+            if ((node.classCounts == null) != (classNames == null)
+                    || (classNames != null && node.classCounts.length != classNames.length))
+                throw new IllegalArgumentException("node " + node.id + " does not have the classes of the root");
+            if (node.classLabel == null) {
+                if (node.children != null)
+                    throw new IllegalArgumentException("the model format only supports binary splits, " +
+                            node.attribute + " has a multi-way split");
+                if (!Double.isNaN(node.threshold))
+                    throw new IllegalArgumentException("the model format only supports binary attributes, " +
+                            node.attribute + " is numeric");
+                if (!attrPositions.containsKey(node.attribute)) {
+                    attrPositions.put(node.attribute, names.size());
+                    names.add(node.attribute);
+                }
+                stack.push(node.right);
+                stack.push(node.left);
+            }
+        }
+
+        TreeModel model = new TreeModel(names.toArray(new String[names.size()]),
+                classNames == null ? null : classNames.clone(), nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            TreeNode node = nodes.get(i);
+            model.labelZeroCount[i] = node.labelZeroCount;
+            model.labelOneCount[i] = node.labelOneCount;
+            if (classNames != null)
+                System.arraycopy(node.classCounts, 0, model.classCounts, i * classNames.length, classNames.length);
+            model.featureIndex[i] = -1;
+            if (node.classLabel == null) {
+                model.featureIndex[i] = attrPositions.get(node.attribute);
+                model.left[i] = i + 1; // pre-order: the left child follows its parent
+            }
+        }
+        // the right child of a node follows the last node of its left subtree
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            if (model.featureIndex[i] >= 0)
+                model.right[i] = model.subtreeEnd(model.left[i]);
+        }
+
+        return model;
+    }
+
+    /**
+     * find the position after the last node of a subtree, children have larger positions than their parent
+     * @param node root of the subtree
+     * @return position after the subtree
+     */
+    private int subtreeEnd(int node) {
+        while (featureIndex[node] >= 0)
+            node = right[node];
+
+        return node + 1;
+    }
+
+    /**
+     * get the number of nodes
+     * @return number of nodes
+     */
+    public int getNodeCount() {
+        return featureIndex.length;
+    }
+
+    /**
+     * get the number of leaf nodes
+     * @return number of leaf nodes
+     */
+    public int getLeafCount() {
+        int count = 0;
+        for (int index : featureIndex) {
+            if (index < 0)
+                count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * get the names of the split attributes, the order of the attribute positions of the model
+     * @return attribute names
+     */
+    public String[] getAttrNames() {
+        return attrNames.clone();
+    }
+
+    /**
+     * check whether the model predicts more than two classes
+     * @return true for a multi-class model
+     */
+    public boolean isMultiClass() {
+        return classNames != null;
+    }
+
+    /**
+     * get the class labels of a multi-class model by class code, a data set is scored with these classes
+     * after BinaryDataSet.withClasses
+     * @return class labels, null for a model with two classes
+     */
+    public String[] getClassNames() {
+        return classNames == null ? null : classNames.clone();
+    }
+
+    /**
+     * get the class counts of a node of a multi-class model
+     * @param node node position
+     * @return instances per class code
+     */
+    private int[] getClassCounts(int node) {
+        return Arrays.copyOfRange(classCounts, node * classNames.length, (node + 1) * classNames.length);
+    }
+
+    /**
+     * compile the model for a data set
+     * @param dataSet data set whose column positions are used, a multi-class model needs a data set with
+     *                its class names
+     * @return compiled tree
+     */
+    public CompiledTree compile(BinaryDataSet dataSet) {
+        if (classNames != null && !dataSet.isMultiClass())
+            throw new IllegalArgumentException("a multi-class model needs a multi-class data set, load it " +
+                    "with BinaryDataSet.withClasses the class names of the model");
+        if (classNames == null && dataSet.isMultiClass())
+            throw new IllegalArgumentException("a binary model can not score a multi-class data set");
+
+        int[] columns = new int[attrNames.length];
+        for (int i = 0; i < attrNames.length; i++) {
+            columns[i] = dataSet.getAttrIndex(attrNames[i]);
+            if (columns[i] == -1)
+                throw new IllegalArgumentException("data set does not contain attribute " + attrNames[i]);
+        }
+
+        int nodeCount = featureIndex.length;
+        int[] compiledFeatures = new int[nodeCount];
+        byte[] leafLabel = new byte[nodeCount];
+        short[] leafClass = classNames == null ? null : new short[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            compiledFeatures[i] = featureIndex[i] < 0 ? -1 : columns[featureIndex[i]];
+            leafLabel[i] = (byte) (labelOneCount[i] > labelZeroCount[i] ? 1 : 0);
+            if (leafClass != null) {
+                String label = classNames[DecisionTreeID3.majorityClass(getClassCounts(i))];
+                leafClass[i] = (short) CompiledTree.classCode(label, dataSet.getClassIndex(label));
+            }
+        }
+
+        return CompiledTree.fromArrays(compiledFeatures, left, right, leafLabel, leafClass);
+    }
+
+    /**
+     * create the tree nodes of the model, node ids are the pre-order positions
+     * @return root node
+     */
+    public TreeNode toTree() {
+        TreeNode[] nodes = new TreeNode[featureIndex.length];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = featureIndex[i] < 0
+                    ? new TreeNode(i, 0, null, DecisionTreeID3.getClassLabel(labelZeroCount[i], labelOneCount[i]),
+                            labelZeroCount[i], labelOneCount[i])
+                    : new TreeNode(i, 0, attrNames[featureIndex[i]], null, labelZeroCount[i], labelOneCount[i]);
+            if (classNames != null) {
+                nodes[i].classCounts = getClassCounts(i);
+                nodes[i].classNames = classNames;
+                if (featureIndex[i] < 0)
+                    nodes[i].classLabel = classNames[DecisionTreeID3.majorityClass(nodes[i].classCounts)];
+            }
+        }
+        // parents come before their children, so heights can be set in one pass
+        for (int i = 0; i < nodes.length; i++) {
+            if (featureIndex[i] >= 0) {
+                nodes[i].left = nodes[left[i]];
+                nodes[i].right = nodes[right[i]];
+                nodes[left[i]].height = nodes[i].height + 1;
+                nodes[right[i]].height = nodes[i].height + 1;
+            }
+        }
+
+        return nodes[0];
+    }
+
+    /**
+     * write the model to a file, the model is written to a temporary file of its own first and moved over the
+     * model file afterwards so that a concurrent reader or writer never sees a partial model
+     * @param path model file path
+     * @throws IOException if the file can not be written
+     */
+    public void save(String path) throws IOException {
+        File modelFile = new File(path);
+        int classCount = classNames == null ? 0 : classNames.length;
+        byte[][] names = new byte[attrNames.length + classCount][];
+        int headerSize = 20;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = (i < attrNames.length ? attrNames[i] : classNames[i - attrNames.length]).getBytes(UTF_8);
+            headerSize += 4 + names[i].length;
+        }
+
+        int nodeCount = featureIndex.length;
+        int arraysOffset = (int) BinaryFiles.align(headerSize);
+        ByteBuffer buffer = ByteBuffer.allocate(arraysOffset + 4 * nodeCount * (5 + classCount));
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(nodeCount).putInt(attrNames.length).putInt(classCount);
+        for (byte[] name : names)
+            buffer.putInt(name.length).put(name);
+        buffer.position(arraysOffset);
+        IntBuffer ints = buffer.asIntBuffer();
+        ints.put(featureIndex).put(left).put(right).put(labelZeroCount).put(labelOneCount);
+        if (classCounts != null)
+            ints.put(classCounts);
+        buffer.position(0);
+
+        File tmpFile = BinaryFiles.createTempFile(modelFile);
+        try (RandomAccessFile file = new RandomAccessFile(tmpFile, "rw");
+             FileChannel channel = file.getChannel()) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        } catch (IOException e) {
+            tmpFile.delete();
+            throw e;
+        }
+
+        BinaryFiles.replace(tmpFile, modelFile);
+    }
+
+    /**
+     * load a model file by mapping it into memory, the node arrays are copied out of the mapping in bulk
+     * @param path model file path
+     * @return model
+     * @throws IOException if the file can not be read or is not a valid model file
+     */
+    public static TreeModel load(String path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "r");
+             FileChannel channel = file.getChannel()) {
+            if (channel.size() < 16 || channel.size() > Integer.MAX_VALUE)
+                throw new IOException(path + " is not a model file");
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC)
+                throw new IOException(path + " is not a model file");
+            int version = buffer.getInt();
+            if (version < 1 || version > VERSION)
+                throw new IOException(path + " has unsupported model version " + version);
+
+            int nodeCount = buffer.getInt();
+            String[] attrNames = new String[buffer.getInt()];
+            int classCount = version == 1 ? 0 : buffer.getInt();
+            if (nodeCount <= 0 || classCount < 0)
+                throw new IOException(path + " is corrupted");
+            for (int i = 0; i < attrNames.length; i++)
+                attrNames[i] = readName(buffer);
+            String[] classNames = classCount == 0 ? null : new String[classCount];
+            for (int i = 0; i < classCount; i++)
+                classNames[i] = readName(buffer);
+
+            int arraysOffset = (int) BinaryFiles.align(buffer.position());
+            if ((long) arraysOffset + 4L * nodeCount * (5 + classCount) != channel.size())
+                throw new IOException(path + " is corrupted");
+            buffer.position(arraysOffset);
+            IntBuffer ints = buffer.asIntBuffer();
+            TreeModel model = new TreeModel(attrNames, classNames, nodeCount);
+            ints.get(model.featureIndex).get(model.left).get(model.right)
+                    .get(model.labelZeroCount).get(model.labelOneCount);
+            if (model.classCounts != null)
+                ints.get(model.classCounts);
+            model.validate(path);
+
+            return model;
+        } catch (RuntimeException e) {
+            // buffer underflow or a negative length from a truncated or foreign file
+            throw new IOException(path + " is corrupted", e);
+        }
+    }
+
+    /**
+     * read a name stored as length + UTF-8 bytes
+     * @param buffer model file buffer at the name
+     * @return name
+     */
+    private static String readName(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * check that the node arrays of a loaded model describe a tree in pre-order
+     * @param path model file path
+     * @throws IOException if the arrays are inconsistent
+     */
+    private void validate(String path) throws IOException {
+        int nodeCount = featureIndex.length;
+        boolean[] hasParent = new boolean[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            if (featureIndex[i] < 0)
+                continue;
+
+            if (featureIndex[i] >= attrNames.length || left[i] != i + 1
+                    || right[i] <= left[i] || right[i] >= nodeCount || hasParent[right[i]])
+                throw new IOException(path + " is corrupted at node " + i);
+            hasParent[left[i]] = true;
+            hasParent[right[i]] = true;
+        }
+        for (int i = 1; i < nodeCount; i++) {
+            if (!hasParent[i])
+                throw new IOException(path + " is corrupted at node " + i);
+        }
+    }
+
+    /**
+     * score a data set with a saved model without building a tree
+     * @param args model file path and data set file path
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: TreeModel <model file> <data set file>");
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            TreeModel model = load(args[0]);
+            long loaded = System.nanoTime();
+            BinaryDataSet dataSet = new ParallelDataLoader().load(args[1]);
+            if (model.isMultiClass())
+                dataSet = dataSet.withClasses(model.getClassNames(), true);
+            CompiledTree tree = model.compile(dataSet);
+            System.out.println("Loaded model with " + model.getNodeCount() + " nodes in " +
+                    (loaded - start) / 1000000.0 + " ms");
+            System.out.println("Number of instances = " + dataSet.getSize());
+            System.out.println("Accuracy of the model on the data set = " +
+                    (double) tree.countCorrect(dataSet) / dataSet.getSize());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
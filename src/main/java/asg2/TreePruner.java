@@ -0,0 +1,269 @@
+package asg2;
+
+import asg2.DecisionTreeID3.TreeNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Author: baojianfeng
+ * Date: 2026-10-17
+ * Description: prune a tree without copying it. Nodes are looked up in an array indexed by node id, and a
+ * pruned variant is only a bitset of pruned node ids laid over the original tree, which CompiledTree can
+ * score directly. A real tree is created only for the variant which is finally kept.
+ * Node ids have to be the pre-order ids assigned by TreeBuilder, then they are also the compiled node indices
+ */
+public class TreePruner {
+    private TreeNode[] nodes; // indexed by node id
+    private long[] leafBits; // bit set for the id of every leaf node
+    private int[] internalIds; // ids of internal nodes in pre-order, never modified
+    private int[] sampleIds; // scratch copy of internalIds used by randomPrune
+
+    /**
+     * constructor
+     * @param root root node of a tree built by TreeBuilder
+     */
+    public TreePruner(TreeNode root) {
+        List<TreeNode> list = new ArrayList<>();
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            TreeNode node = stack.pop();
+            if (node.id != list.size())
+                throw new IllegalArgumentException("node ids are not the pre-order ids of the tree");
+
+            list.add(node);
+            if (node.classLabel == null) {
+                stack.push(node.right);
+                stack.push(node.left);
+            }
+        }
+
+        nodes = list.toArray(new TreeNode[list.size()]);
+        leafBits = new long[BinaryDataSet.wordCount(nodes.length)];
+        int internalCount = 0;
+        for (TreeNode node : nodes) {
+            if (node.classLabel != null)
+                leafBits[node.id >>> 6] |= 1L << node.id;
+            else
+                internalCount++;
+        }
+
+        internalIds = new int[internalCount];
+        int i = 0;
+        for (TreeNode node : nodes) {
+            if (node.classLabel == null)
+                internalIds[i++] = node.id;
+        }
+        sampleIds = new int[internalCount];
+    }
+
+    /**
+     * get the number of nodes of the original tree
+     * @return number of nodes
+     */
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    /**
+     * get the number of internal nodes of the original tree
+     * @return number of internal nodes
+     */
+    public int getInternalCount() {
+        return internalIds.length;
+    }
+
+    /**
+     * create a scratch array for sampling internal nodes in another thread
+     * @return array with room for the ids of all internal nodes
+     */
+    public int[] newSampleIds() {
+        return new int[internalIds.length];
+    }
+
+    /**
+     * get a node by id
+     * @param id node id
+     * @return node
+     */
+    TreeNode getNode(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * check whether a node is a leaf node of the original tree
+     * @param id node id
+     * @return true if the node is a leaf node
+     */
+    public boolean isLeaf(int id) {
+        return (leafBits[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * create an empty pruned node bitset
+     * @return bitset with one bit per node id
+     */
+    public long[] newPrunedBits() {
+        return new long[leafBits.length];
+    }
+
+    /**
+     * turn randomly chosen internal nodes into leaf nodes, the nodes are sampled without replacement.
+     * The result only depends on the state of the random number generator
+     * @param count number of internal nodes to prune, at most the number of internal nodes
+     * @param random random number generator
+     * @param pruned bitset receiving the pruned node ids, it is cleared first
+     * @return the pruned bitset
+     */
+    public long[] randomPrune(int count, Random random, long[] pruned) {
+        return randomPrune(count, random, sampleIds, pruned);
+    }
+
+    /**
+     * same as randomPrune(count, random, pruned) but sampling in a caller owned scratch array, so that
+     * several threads can sample from one pruner
+     * @param count number of internal nodes to prune, at most the number of internal nodes
+     * @param random random number generator
+     * @param sampleIds scratch array created by newSampleIds
+     * @param pruned bitset receiving the pruned node ids, it is cleared first
+     * @return the pruned bitset
+     */
+    public long[] randomPrune(int count, Random random, int[] sampleIds, long[] pruned) {
+        for (int i = 0; i < pruned.length; i++)
+            pruned[i] = 0L;
+
+        int n = internalIds.length;
+        System.arraycopy(internalIds, 0, sampleIds, 0, n);
+        count = Math.min(count, n);
+        for (int i = 0; i < count; i++) {
+            // partial Fisher-Yates shuffle: the first i positions hold the sampled ids
+            int j = i + random.nextInt(n - i);
+            int id = sampleIds[j];
+            sampleIds[j] = sampleIds[i];
+            sampleIds[i] = id;
+            pruned[id >>> 6] |= 1L << id;
+        }
+
+        return pruned;
+    }
+
+    /**
+     * reduced error pruning: the validation data set is routed through the tree once to count, for every
+     * node, the correct predictions of the node used as a leaf node and of its subtree. Going bottom-up, a
+     * node is pruned whenever the leaf is at least as accurate as the subtree below it
+     * @param compiledTree the original tree compiled for the validation data set
+     * @param validation validation data set
+     * @return pruned node bitset
+     */
+    public long[] reducedErrorPrune(CompiledTree compiledTree, BinaryDataSet validation) {
+        TrainingMetrics.PhaseTimer timer = TrainingMetrics.begin(TrainingMetrics.Phase.PRUNE);
+        int[] reached = new int[nodes.length];
+        int[] reachedCorrect = new int[nodes.length];
+        compiledTree.countReached(validation, reached, reachedCorrect);
+
+        long[] pruned = newPrunedBits();
+        int[] subtreeCorrect = new int[nodes.length];
+        // in pre-order children come after their parent, so a reverse scan visits children first
+        for (int id = nodes.length - 1; id >= 0; id--) {
+            TreeNode node = nodes[id];
+            int leafCorrect = reachedCorrect[id];
+            if (node.classLabel != null) {
+                subtreeCorrect[id] = leafCorrect;
+            } else {
+                subtreeCorrect[id] = subtreeCorrect[node.left.id] + subtreeCorrect[node.right.id];
+                if (leafCorrect >= subtreeCorrect[id]) {
+                    subtreeCorrect[id] = leafCorrect;
+                    pruned[id >>> 6] |= 1L << id;
+                }
+            }
+        }
+
+        TrainingMetrics.end(timer, validation.getSize());
+        return pruned;
+    }
+
+    /**
+     * check whether a node is pruned
+     * @param pruned pruned node bitset
+     * @param id node id
+     * @return true if the node is pruned
+     */
+    public static boolean isPruned(long[] pruned, int id) {
+        return (pruned[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * create the tree described by a pruned node bitset, nodes below a pruned node are dropped
+     * @param pruned pruned node bitset
+     * @return root node of the pruned tree
+     */
+    public TreeNode materialize(long[] pruned) {
+        TreeNode root = copyNode(nodes[0], pruned);
+        // pairs of an original node and its copy whose children are still to be copied, without recursion
+        Deque<TreeNode> originals = new ArrayDeque<>();
+        Deque<TreeNode> copies = new ArrayDeque<>();
+        originals.push(nodes[0]);
+        copies.push(root);
+        while (!originals.isEmpty()) {
+            TreeNode node = originals.pop();
+            TreeNode copiedNode = copies.pop();
+            if (copiedNode.classLabel != null)
+                continue;
+
+            copiedNode.left = copyNode(node.left, pruned);
+            copiedNode.right = copyNode(node.right, pruned);
+            originals.push(node.right);
+            copies.push(copiedNode.right);
+            originals.push(node.left);
+            copies.push(copiedNode.left);
+        }
+
+        return root;
+    }
+
+    /**
+     * copy a node without its children, a pruned node becomes a leaf node predicting its majority class label
+     * @param node node of the original tree
+     * @param pruned pruned node bitset
+     * @return copied node
+     */
+    private TreeNode copyNode(TreeNode node, long[] pruned) {
+        boolean prune = node.classLabel == null && isPruned(pruned, node.id);
+        TreeNode copiedNode = new TreeNode(node.id, node.height, prune ? null : node.attribute,
+                prune ? DecisionTreeID3.majorityLabel(node) : node.classLabel,
+                node.labelZeroCount, node.labelOneCount);
+        copiedNode.classCounts = node.classCounts;
+        copiedNode.classNames = node.classNames;
+        if (!prune)
+            copiedNode.threshold = node.threshold;
+
+        return copiedNode;
+    }
+
+    /**
+     * count the nodes and leaf nodes of a pruned variant without creating it
+     * @param pruned pruned node bitset
+     * @return arr[0]: the number of all nodes, arr[1]: the number of leaf nodes
+     */
+    public int[] countNodes(long[] pruned) {
+        int[] count = new int[2];
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        stack.push(nodes[0]);
+        while (!stack.isEmpty()) {
+            TreeNode node = stack.pop();
+            count[0]++;
+            if (node.classLabel != null || isPruned(pruned, node.id)) {
+                count[1]++;
+            } else {
+                stack.push(node.right);
+                stack.push(node.left);
+            }
+        }
+
+        return count;
+    }
+}